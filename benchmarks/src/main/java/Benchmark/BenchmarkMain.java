@@ -0,0 +1,59 @@
+package Benchmark;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.ProfilerConfig;
+
+/**
+ * benchmarks.jar 的入口：参数和 JMH 自带的命令行相同，但总是开启 GC 分配统计(-prof gc)，
+ * 所以直接运行 java -jar benchmarks/target/benchmarks.jar 也会输出每次操作分配的字节数(gc.alloc.rate.norm)
+ * <p>
+ * -h、-l、-lprof 等只查询信息的参数交给 JMH 自己处理；命令行中已经有 -prof gc 时不重复添加
+ */
+public final class BenchmarkMain {
+
+    private BenchmarkMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLine;
+        try {
+            commandLine = new CommandLineOptions(args);
+        } catch (CommandLineOptionException e) {
+            System.err.println("参数错误: " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+        if (commandLine.shouldHelp() || commandLine.shouldList() || commandLine.shouldListWithParams()
+                || commandLine.shouldListProfilers() || commandLine.shouldListResultFormats()) {
+            Main.main(args);
+            return;
+        }
+        OptionsBuilder options = new OptionsBuilder();
+        options.parent(commandLine);
+        if (!hasGcProfiler(commandLine)) {
+            options.addProfiler(GCProfiler.class);
+        }
+        try {
+            new Runner(options.build()).run();
+        } catch (RunnerException e) {
+            System.err.println("运行失败: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private static boolean hasGcProfiler(CommandLineOptions commandLine) {
+        for (ProfilerConfig profiler : commandLine.getProfilers()) {
+            String klass = profiler.getKlass();
+            if ("gc".equals(klass) || GCProfiler.class.getName().equals(klass)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
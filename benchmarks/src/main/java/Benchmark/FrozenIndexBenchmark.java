@@ -0,0 +1,78 @@
+package Benchmark;
+
+import AVL.AVL;
+import Common.EytzingerIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 冻结后的 EytzingerIndex 对比 AVL 的 contains/rank，使用 {@link #N} 个随机键，远大于 CPU 缓存
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class FrozenIndexBenchmark {
+
+    static final int N = 1 << 20;
+
+    private int[] keys;
+
+    private AVL avl;
+
+    private EytzingerIndex index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        keys = Workload.RANDOM.keys(N);
+        avl = AVL.bulkLoad(keys);
+        index = avl.freeze();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(N)
+    public void avlContains(Blackhole blackhole) {
+        for (int key : keys) {
+            blackhole.consume(avl.contains(key));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(N)
+    public void indexContains(Blackhole blackhole) {
+        for (int key : keys) {
+            blackhole.consume(index.contains(key));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(N)
+    public void avlRank(Blackhole blackhole) {
+        for (int key : keys) {
+            blackhole.consume(avl.rank(key));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(N)
+    public void indexRank(Blackhole blackhole) {
+        for (int key : keys) {
+            blackhole.consume(index.rank(key));
+        }
+    }
+}
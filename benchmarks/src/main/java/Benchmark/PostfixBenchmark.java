@@ -0,0 +1,74 @@
+package Benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import 栈ADT.InfixCompiler;
+import 栈ADT.PostfixExpression;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 后缀表达式 6 5 2 3 + 8 * + 3 + * 的计算，只使用 PostfixExpression 和 InfixCompiler 的公开接口：
+ * 1.compileEachTime：每次都从字符串编译再计算，相当于逐个解析字符串的解释执行
+ * 2.compiled：预先编译为操作码，只在 long 数组上计算
+ * 3.infix：从等价的中缀表达式编译再计算
+ * 4.基于 ArrayDeque 的计算，作为对照
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class PostfixBenchmark {
+
+    private final List<String> expression = Arrays.asList("6", "5", "2", "3", "+", "8", "*", "+", "3", "+", "*");
+
+    private final String infix = "6 * (5 + (2 + 3) * 8 + 3)";
+
+    private final PostfixExpression compiled = PostfixExpression.compile(expression);
+
+    @Benchmark
+    public long compileEachTime() {
+        return PostfixExpression.compile(expression).evaluate();
+    }
+
+    @Benchmark
+    public long compiled() {
+        return compiled.evaluate();
+    }
+
+    @Benchmark
+    public long infix() {
+        return InfixCompiler.compile(infix).evaluate();
+    }
+
+    @Benchmark
+    public int arrayDeque() {
+        ArrayDeque<Integer> stack = new ArrayDeque<>();
+        for (String element : expression) {
+            switch (element) {
+                case "+":
+                    stack.push(stack.pop() + stack.pop());
+                    break;
+                case "*":
+                    stack.push(stack.pop() * stack.pop());
+                    break;
+                default:
+                    stack.push(Integer.parseInt(element));
+                    break;
+            }
+        }
+        return stack.pop();
+    }
+}
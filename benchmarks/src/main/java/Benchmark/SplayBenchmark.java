@@ -0,0 +1,169 @@
+package Benchmark;
+
+import AVL.AVL;
+import BinarySearchTree.BinarySearchTree;
+import BinarySearchTree.SplayBinarySearchTree;
+import Common.TreeMetrics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 伸展树在偏斜访问下的表现：先按随机顺序插入 {@link #N} 个键，再分别按两种分布查询：
+ * 1.ZIPFIAN：{@link Workload#ZIPFIAN}，参数 0.99
+ * 2.HOTSET：90% 的查询落在随机选出的 1% 的键上，其余均匀分布
+ * 测量 BinarySearchTree、AVL、SplayBinarySearchTree 每次 contains 的时间
+ * <p>
+ * main 方法不计时，只用 TreeMetrics 统计每次 contains 的平均比较次数和深度：
+ * 先完整查询一遍让伸展树适应访问分布，再统计第二遍
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class SplayBenchmark {
+
+    static final int N = 1 << 16;
+
+    @Param({"ZIPFIAN", "HOTSET"})
+    public String distribution;
+
+    private int[] lookups;
+
+    private BinarySearchTree bst;
+
+    private AVL avl;
+
+    private SplayBinarySearchTree splay;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(7);
+        int[] keys = keys(random);
+        lookups = lookups(distribution, keys, random);
+        bst = new BinarySearchTree();
+        avl = new AVL();
+        splay = new SplayBinarySearchTree();
+        for (int key : keys) {
+            bst.insert(key);
+            avl.add(key);
+            splay.insert(key);
+        }
+        for (int key : lookups) {
+            splay.contains(key);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(N)
+    public void bstContains(Blackhole blackhole) {
+        for (int key : lookups) {
+            blackhole.consume(bst.contains(key));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(N)
+    public void avlContains(Blackhole blackhole) {
+        for (int key : lookups) {
+            blackhole.consume(avl.contains(key));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(N)
+    public void splayContains(Blackhole blackhole) {
+        for (int key : lookups) {
+            blackhole.consume(splay.contains(key));
+        }
+    }
+
+    /**
+     * ZIPFIAN 用同一个种子的随机排列打散热点，直接用 RANDOM 的顺序插入的话热点恰好是最先插入的键，
+     * 会停在 BinarySearchTree 的根附近，所以插入顺序另外打乱
+     */
+    private static int[] keys(Random random) {
+        int[] keys = Workload.RANDOM.keys(N);
+        shuffle(keys, random);
+        return keys;
+    }
+
+    private static int[] lookups(String distribution, int[] keys, Random random) {
+        return "HOTSET".equals(distribution) ? hotSet(keys, random) : Workload.ZIPFIAN.keys(N);
+    }
+
+    private static void shuffle(int[] keys, Random random) {
+        for (int i = keys.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int t = keys[i];
+            keys[i] = keys[j];
+            keys[j] = t;
+        }
+    }
+
+    /**
+     * 90% 的查询落在 1% 的键上
+     */
+    private static int[] hotSet(int[] keys, Random random) {
+        int n = keys.length;
+        int[] shuffled = keys.clone();
+        shuffle(shuffled, random);
+        int hot = Math.max(1, n / 100);
+        int[] lookups = new int[n];
+        for (int i = 0; i < n; i++) {
+            lookups[i] = random.nextInt(10) < 9 ? shuffled[random.nextInt(hot)] : shuffled[random.nextInt(n)];
+        }
+        return lookups;
+    }
+
+    public static void main(String[] args) {
+        for (String distribution : new String[]{"ZIPFIAN", "HOTSET"}) {
+            SplayBenchmark benchmark = new SplayBenchmark();
+            benchmark.distribution = distribution;
+            benchmark.setUp();
+
+            TreeMetrics metrics = new TreeMetrics();
+            benchmark.bst.setMetrics(metrics);
+            for (int key : benchmark.lookups) {
+                benchmark.bst.contains(key);
+            }
+            print("BinarySearchTree", distribution, metrics);
+
+            metrics.reset();
+            benchmark.avl.setMetrics(metrics);
+            for (int key : benchmark.lookups) {
+                benchmark.avl.contains(key);
+            }
+            print("AVL", distribution, metrics);
+
+            metrics.reset();
+            benchmark.splay.setMetrics(metrics);
+            for (int key : benchmark.lookups) {
+                benchmark.splay.contains(key);
+            }
+            print("SplayBinarySearchTree", distribution, metrics);
+        }
+    }
+
+    private static void print(String name, String distribution, TreeMetrics metrics) {
+        TreeMetrics.Snapshot snapshot = metrics.snapshot();
+        System.out.printf("%-24s %-8s %8.2f comparisons/op, depth p50=%d p99=%d%n", name, distribution,
+                snapshot.getComparisonsPerOperation(), snapshot.getDepthQuantile(0.5), snapshot.getDepthQuantile(0.99));
+    }
+}
@@ -0,0 +1,76 @@
+package Benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import 栈ADT.IntStack;
+import 栈ADT.Stack;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 栈的 push/pop，每次调用先压入 {@link #N} 个元素再全部弹出：
+ * 1.Stack：包装 ArrayList，每个元素装箱，pop 先 get 再 remove(size - 1)
+ * 2.IntStack：分块的 int 数组，没有装箱
+ * 3.ArrayDeque：JDK 的数组实现，作为对照
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class StackBenchmark {
+
+    static final int N = 1 << 14;
+
+    @Benchmark
+    @OperationsPerInvocation(N)
+    public long stack() {
+        Stack<Integer> stack = new Stack<>();
+        for (int i = 0; i < N; i++) {
+            stack.push(i);
+        }
+        long sum = 0;
+        for (int i = 0; i < N; i++) {
+            sum += stack.pop();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(N)
+    public long intStack() {
+        IntStack stack = new IntStack();
+        for (int i = 0; i < N; i++) {
+            stack.push(i);
+        }
+        long sum = 0;
+        for (int i = 0; i < N; i++) {
+            sum += stack.pop();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(N)
+    public long arrayDeque() {
+        ArrayDeque<Integer> stack = new ArrayDeque<>();
+        for (int i = 0; i < N; i++) {
+            stack.push(i);
+        }
+        long sum = 0;
+        for (int i = 0; i < N; i++) {
+            sum += stack.pop();
+        }
+        return sum;
+    }
+}
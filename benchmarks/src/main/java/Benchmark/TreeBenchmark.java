@@ -0,0 +1,156 @@
+package Benchmark;
+
+import AVL.AVL;
+import BinarySearchTree.BinarySearchTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BinarySearchTree、AVL 与 TreeMap 的插入、查找、删除，每次调用处理 {@link #N} 个键
+ * <p>
+ * 分别使用 SORTED、RANDOM、ZIPFIAN 三种键分布，升序数据会让 BinarySearchTree 退化为链表，所以 N 不宜太大
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class TreeBenchmark {
+
+    static final int N = 1 << 14;
+
+    @Param({"SORTED", "RANDOM", "ZIPFIAN"})
+    public Workload workload;
+
+    private int[] keys;
+
+    private BinarySearchTree bst;
+
+    private AVL avl;
+
+    private TreeMap<Integer, Integer> map;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        keys = workload.keys(N);
+        bst = new BinarySearchTree();
+        avl = new AVL();
+        map = new TreeMap<>();
+        for (int key : keys) {
+            bst.insert(key);
+            avl.add(key);
+            map.put(key, key);
+        }
+    }
+
+    /**
+     * 删除测试每次调用前重新建好的树
+     */
+    @State(Scope.Thread)
+    public static class Filled {
+
+        private BinarySearchTree bst;
+
+        private TreeMap<Integer, Integer> map;
+
+        @Setup(Level.Invocation)
+        public void setUp(TreeBenchmark benchmark) {
+            bst = new BinarySearchTree();
+            map = new TreeMap<>();
+            for (int key : benchmark.keys) {
+                bst.insert(key);
+                map.put(key, key);
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(N)
+    public BinarySearchTree bstInsert() {
+        BinarySearchTree tree = new BinarySearchTree();
+        for (int key : keys) {
+            tree.insert(key);
+        }
+        return tree;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(N)
+    public void bstContains(Blackhole blackhole) {
+        for (int key : keys) {
+            blackhole.consume(bst.contains(key));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(N)
+    public BinarySearchTree bstRemove(Filled filled) {
+        BinarySearchTree tree = filled.bst;
+        for (int key : keys) {
+            tree.remove(key);
+        }
+        return tree;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(N)
+    public AVL avlAdd() {
+        AVL tree = new AVL();
+        for (int key : keys) {
+            tree.add(key);
+        }
+        return tree;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(N)
+    public void avlContains(Blackhole blackhole) {
+        for (int key : keys) {
+            blackhole.consume(avl.contains(key));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(N)
+    public TreeMap<Integer, Integer> treeMapPut() {
+        TreeMap<Integer, Integer> tree = new TreeMap<>();
+        for (int key : keys) {
+            tree.put(key, key);
+        }
+        return tree;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(N)
+    public void treeMapContainsKey(Blackhole blackhole) {
+        for (int key : keys) {
+            blackhole.consume(map.containsKey(key));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(N)
+    public TreeMap<Integer, Integer> treeMapRemove(Filled filled) {
+        TreeMap<Integer, Integer> tree = filled.map;
+        for (int key : keys) {
+            tree.remove(key);
+        }
+        return tree;
+    }
+}
@@ -0,0 +1,108 @@
+package Benchmark;
+
+import java.util.Random;
+
+/**
+ * 基准测试的键分布
+ * 1.SORTED：升序，普通二叉搜索树会退化成链表
+ * 2.RANDOM：0..n-1 的随机排列
+ * 3.ZIPFIAN：少量热点键占大部分访问(参数 0.99，与 YCSB 相同)，热点键在键空间中打散
+ */
+public enum Workload {
+
+    SORTED,
+    RANDOM,
+    ZIPFIAN;
+
+    private static final long SEED = 42;
+
+    /**
+     * 生成 n 个键
+     *
+     * @param n 键的个数
+     * @return 键数组
+     */
+    public int[] keys(int n) {
+        int[] keys = new int[n];
+        switch (this) {
+            case SORTED:
+                for (int i = 0; i < n; i++) {
+                    keys[i] = i;
+                }
+                break;
+            case RANDOM:
+                System.arraycopy(permutation(n), 0, keys, 0, n);
+                break;
+            default:
+                int[] scramble = permutation(n);
+                Zipfian zipfian = new Zipfian(n, 0.99, new Random(SEED));
+                for (int i = 0; i < n; i++) {
+                    keys[i] = scramble[zipfian.next()];
+                }
+                break;
+        }
+        return keys;
+    }
+
+    private static int[] permutation(int n) {
+        int[] keys = new int[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = i;
+        }
+        Random random = new Random(SEED);
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int t = keys[i];
+            keys[i] = keys[j];
+            keys[j] = t;
+        }
+        return keys;
+    }
+
+    /**
+     * Zipf 分布生成器(Gray 等人的方法)，返回 [0, n) 之间的排名，排名越小越热
+     */
+    public static final class Zipfian {
+
+        private final int n;
+
+        private final double theta;
+
+        private final double alpha;
+
+        private final double zetaN;
+
+        private final double eta;
+
+        private final Random random;
+
+        public Zipfian(int n, double theta, Random random) {
+            this.n = n;
+            this.theta = theta;
+            this.random = random;
+            this.zetaN = zeta(n, theta);
+            this.alpha = 1.0 / (1.0 - theta);
+            this.eta = (1 - Math.pow(2.0 / n, 1 - theta)) / (1 - zeta(2, theta) / zetaN);
+        }
+
+        private static double zeta(int n, double theta) {
+            double sum = 0;
+            for (int i = 1; i <= n; i++) {
+                sum += 1 / Math.pow(i, theta);
+            }
+            return sum;
+        }
+
+        public int next() {
+            double u = random.nextDouble();
+            double uz = u * zetaN;
+            if (uz < 1.0) {
+                return 0;
+            }
+            if (uz < 1.0 + Math.pow(0.5, theta)) {
+                return 1;
+            }
+            return Math.min(n - 1, (int) (n * Math.pow(eta * u - eta + 1, alpha)));
+        }
+    }
+}
@@ -1,5 +1,18 @@
 package AVL;
 
+import Common.EytzingerIndex;
+import Common.LookupAccelerator;
+import Common.SortedKeys;
+import Common.TreeMetrics;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.IntConsumer;
+
 /**
  * 平衡二叉搜索树：
  * 1.它是一棵空树或它的左右子树的高度差的绝对值不超过1
@@ -9,43 +22,218 @@ package AVL;
  * 某节点的左子树和右子树的高度差
  * <p>
  * 在平衡二叉搜索树中，所有节点的平衡因子只可能是 -1、0、1
+ * <p>
+ * 持久化模式(persistent)：
+ * add、remove 不修改已有节点，只复制根到叶子路径上的节点(以及旋转涉及的节点)，新根通过 CAS 发布。
+ * 已发布的节点永远不会再被修改，所以 {@link #snapshot()} 只需要保存当前的根，O(1) 得到一个不可变的版本，
+ * 读线程可以无锁地查询和遍历快照，同时写线程继续写入
  */
-public class AVL {
+public class AVL implements Iterable<Integer> {
+
+    private static final AtomicReferenceFieldUpdater<AVL, Node> ROOT =
+            AtomicReferenceFieldUpdater.newUpdater(AVL.class, Node.class, "root");
 
-    private class Node {
+    private class Node extends AVLBalancer.BalancedNode<Node> {
         /**
          * 节点数据
          */
         private Integer element;
-        /**
-         * 左节点
-         */
-        private Node left;
-        /**
-         * 右节点
-         */
-        private Node right;
 
         /**
-         * 当前节点的高度
+         * 以当前节点为根的子树的节点数，用于 rank、select 等顺序统计
          */
-        private Integer height;
+        private int size;
 
         public Node(Integer element, Node left, Node right) {
             this.element = element;
             this.left = left;
             this.right = right;
-            this.height = 1;
+            this.size = 1;
+        }
+
+        /**
+         * 更新高度和子树节点数
+         */
+        @Override
+        void update() {
+            super.update();
+            size = getSize(left) + getSize(right) + 1;
         }
     }
 
-    private Node root;
+    private volatile Node root;
+
+    /**
+     * 一次写操作使用的平衡器：旋转前按需复制节点，统计先记在这里，操作完成后由 {@link #publish()} 写入 metrics
+     * 持久化模式下 CAS 失败会基于新的根重新计算，每次尝试使用新的 Update，只有发布成功的那一次计入统计
+     */
+    private class Update extends AVLBalancer<Node> {
+        /**
+         * 插入时到达的深度，-1 表示没有记录
+         */
+        private int depth = -1;
+        /**
+         * 插入时的比较次数
+         */
+        private int comparisons;
+        /**
+         * 各类旋转的次数
+         */
+        private final int[] rotations = new int[TreeMetrics.Rotation.values().length];
+
+        @Override
+        Node writable(Node node) {
+            return AVL.this.writable(node);
+        }
 
-    private Integer size;
+        @Override
+        void rotated(TreeMetrics.Rotation rotation) {
+            rotations[rotation.ordinal()]++;
+        }
+
+        void reached(int comparisons, int depth) {
+            this.comparisons = comparisons;
+            this.depth = depth;
+        }
+
+        void publish() {
+            if (null == metrics) {
+                return;
+            }
+            if (depth >= 0) {
+                metrics.record(comparisons, comparisons, depth);
+            }
+            for (TreeMetrics.Rotation rotation : TreeMetrics.Rotation.values()) {
+                for (int i = rotations[rotation.ordinal()]; i > 0; i--) {
+                    metrics.record(rotation);
+                }
+            }
+        }
+    }
+
+    /**
+     * 操作统计，为 null 时不统计
+     */
+    private TreeMetrics metrics;
+
+    /**
+     * 是否为持久化模式
+     */
+    private final boolean persistent;
+
+    /**
+     * 是否为只读的快照
+     */
+    private final boolean readOnly;
 
     public AVL() {
-        root = null;
-        size = 0;
+        this(false);
+    }
+
+    /**
+     * @param persistent 是否为持久化模式
+     */
+    public AVL(boolean persistent) {
+        this(null, persistent, false);
+    }
+
+    private AVL(Node root, boolean persistent, boolean readOnly) {
+        this.root = root;
+        this.persistent = persistent;
+        this.readOnly = readOnly;
+    }
+
+    /**
+     * 由有序数组批量构建平衡二叉树：每次取中间的元素作为根，左右两半递归构建
+     * 每个节点只创建一次，不需要比较和旋转，时间复杂度 O(n)
+     * 数组无序时先并行排序，重复的元素只保留一个，传入的数组不会被修改
+     *
+     * @param sorted 有序数组
+     * @return 平衡二叉树
+     */
+    public static AVL bulkLoad(int[] sorted) {
+        int[] keys = SortedKeys.sortedDistinct(sorted);
+        AVL avl = new AVL();
+        avl.root = avl.build(keys, 0, keys.length - 1);
+        return avl;
+    }
+
+    /**
+     * 由有序的迭代器批量构建平衡二叉树
+     *
+     * @param iterator 迭代器
+     * @return 平衡二叉树
+     */
+    public static AVL bulkLoad(Iterator<Integer> iterator) {
+        return bulkLoad(SortedKeys.toArray(iterator));
+    }
+
+    /**
+     * 以 keys[lo..hi] 构建子树，叶子的高度为1，父节点的高度在孩子构建完成后计算
+     *
+     * @param keys 有序数组
+     * @param lo   起始下标(包含)
+     * @param hi   结束下标(包含)
+     * @return 子树
+     */
+    private Node build(int[] keys, int lo, int hi) {
+        if (lo > hi) {
+            return null;
+        }
+        int mid = (lo + hi) >>> 1;
+        Node node = new Node(keys[mid], build(keys, lo, mid - 1), build(keys, mid + 1, hi));
+        update(node);
+        return node;
+    }
+
+    /**
+     * 获取当前版本的只读快照，只有持久化模式支持
+     *
+     * @return 快照
+     */
+    public AVL snapshot() {
+        if (!persistent) {
+            throw new IllegalStateException("只有持久化模式支持快照");
+        }
+        if (readOnly) {
+            return this;
+        }
+        return new AVL(root, true, true);
+    }
+
+    /**
+     * 开启或关闭(传入 null) add、contains 的比较次数、深度和旋转的统计，多棵树可以共用一个 TreeMetrics
+     *
+     * @param metrics 统计
+     */
+    public void setMetrics(TreeMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public TreeMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * 持久化模式下返回节点的副本，之后对副本的修改不会影响已发布的版本
+     *
+     * @param node 节点
+     * @return 可以修改的节点
+     */
+    private Node writable(Node node) {
+        if (!persistent || null == node) {
+            return node;
+        }
+        Node copy = new Node(node.element, node.left, node.right);
+        copy.height = node.height;
+        copy.size = node.size;
+        return copy;
+    }
+
+    private void checkWritable() {
+        if (readOnly) {
+            throw new UnsupportedOperationException("快照是只读的");
+        }
     }
 
     /**
@@ -55,10 +243,29 @@ public class AVL {
      * @return 高度
      */
     public int getHeight(Node node) {
+        return AVLBalancer.height(node);
+    }
+
+    /**
+     * 获取某个节点为根的子树的节点数
+     *
+     * @param node 节点
+     * @return 子树的节点数
+     */
+    private int getSize(Node node) {
         if (null == node) {
             return 0;
         }
-        return node.height;
+        return node.size;
+    }
+
+    /**
+     * 更新节点的高度和子树节点数，旋转和插入删除之后都需要自下而上调用
+     *
+     * @param node 节点
+     */
+    private void update(Node node) {
+        node.update();
     }
 
     /**
@@ -67,7 +274,7 @@ public class AVL {
      * @return 平衡二叉树的大小
      */
     public int getSize() {
-        return size;
+        return getSize(root);
     }
 
     /**
@@ -76,7 +283,7 @@ public class AVL {
      * @return 是否为空
      */
     public boolean isEmpty() {
-        return size == 0;
+        return null == root;
     }
 
     /**
@@ -87,10 +294,7 @@ public class AVL {
      * @return 平衡因子
      */
     public Integer getBalanceFactor(Node node) {
-        if (null == node) {
-            return 0;
-        }
-        return getHeight(node.left) - getHeight(node.right);
+        return AVLBalancer.balanceFactor(node);
     }
 
     public boolean isBalance() {
@@ -116,162 +320,554 @@ public class AVL {
         return isBalance(node.left) && isBalance(node.right);
     }
 
+    public void add(Integer e) {
+        checkWritable();
+        if (!persistent) {
+            Update update = new Update();
+            root = add(update, root, e, 1);
+            update.publish();
+            return;
+        }
+        //  持久化模式下基于旧版本计算出新版本，CAS 发布失败说明有其他写线程，重新计算
+        Node current;
+        Node updated;
+        Update update;
+        do {
+            update = new Update();
+            current = root;
+            updated = add(update, current, e, 1);
+            //  元素已存在时返回的就是原来的根，不需要发布
+        } while (updated != current && !ROOT.compareAndSet(this, current, updated));
+        update.publish();
+    }
+
     /**
-     * LL: 向 左子树(L) 的 左孩子(L) 中插入新节点后导致不平衡
-     * 这种情况下需要右旋操作
+     * 持久化模式下子树没有变化时返回原来的节点，路径上的节点都不复制
      *
-     *       y               x
-     *      / \            /   \
-     *     x   t4         z     y
-     *    / \            / \   / \
-     *   z   t3         t1 t2 t3 t4
-     *  / \
-     * t1  t2
+     * @param depth 当前节点的深度，每个节点比较一次，所以到达的深度也就是比较次数加1
+     */
+    private Node add(Update update, Node node, Integer e, int depth) {
+        //  节点为空，插入元素
+        if(null == node) {
+            update.reached(depth - 1, depth);
+            return new Node(e, null, null);
+        }
+        int result = e.compareTo(node.element);
+        if (result == 0) {
+            //  元素已存在
+            update.reached(depth, depth);
+            return node;
+        }
+        //  节点不为空，递归添加元素
+        if(result > 0) {
+            //  比当前节点大
+            Node right = add(update, node.right, e, depth + 1);
+            if (persistent && right == node.right) {
+                return node;
+            }
+            node = writable(node);
+            node.right = right;
+        } else {
+            //  比当前节点小
+            Node left = add(update, node.left, e, depth + 1);
+            if (persistent && left == node.left) {
+                return node;
+            }
+            node = writable(node);
+            node.left = left;
+        }
+        return update.balance(node);
+    }
+
+    public boolean contains(Integer e) {
+        Node node = root;
+        int visited = 0;
+        while (null != node) {
+            visited++;
+            int result = e.compareTo(node.element);
+            if (result == 0) {
+                break;
+            }
+            node = result < 0 ? node.left : node.right;
+        }
+        if (null != metrics) {
+            metrics.record(visited, visited, visited);
+        }
+        return null != node;
+    }
+
+    public void remove(Integer e) {
+        checkWritable();
+        if (!persistent) {
+            Update update = new Update();
+            root = remove(update, root, e);
+            update.publish();
+            return;
+        }
+        Node current;
+        Node updated;
+        Update update;
+        do {
+            update = new Update();
+            current = root;
+            updated = remove(update, current, e);
+            //  元素不存在时返回的就是原来的根，不需要发布
+        } while (updated != current && !ROOT.compareAndSet(this, current, updated));
+        update.publish();
+    }
+
+    /**
+     * 删除节点，找到节点后分两种情况：
+     * 1.最多只有一个孩子，直接用孩子替换当前节点
+     * 2.有两个孩子，用后继节点(右子树的最小节点)的数据替换当前节点，再从右子树中删除后继节点
+     * 回溯时对路径上的每个节点重新平衡，持久化模式下子树没有变化(元素不存在)时返回原来的节点
      *
-     * @param y 节点树
-     * @return 新节点树
+     * @param update 这次操作的平衡器
+     * @param node   节点树
+     * @param e      数据
+     * @return 删除后的节点树
      */
-    private Node LL(Node y) {
-        Node x = y.left;
-        Node t3 = x.right;
-        x.right = y;
-        y.left = t3;
-        //  更新节点高度
-        y.height = Math.max(getHeight(y.left), getHeight(y.right)) + 1;
-        x.height = Math.max(getHeight(x.left), getHeight(x.right)) + 1;
-        return x;
+    private Node remove(Update update, Node node, Integer e) {
+        if (null == node) {
+            return null;
+        }
+        int result = e.compareTo(node.element);
+        if (result > 0) {
+            Node right = remove(update, node.right, e);
+            if (persistent && right == node.right) {
+                return node;
+            }
+            node = writable(node);
+            node.right = right;
+        } else if (result < 0) {
+            Node left = remove(update, node.left, e);
+            if (persistent && left == node.left) {
+                return node;
+            }
+            node = writable(node);
+            node.left = left;
+        } else {
+            if (null == node.left) {
+                return node.right;
+            }
+            if (null == node.right) {
+                return node.left;
+            }
+            Node min = node.right;
+            while (null != min.left) {
+                min = min.left;
+            }
+            node = writable(node);
+            node.element = min.element;
+            node.right = removeMin(update, node.right);
+        }
+        return update.balance(node);
     }
 
     /**
-     * RR: 向 右子树(R) 的 右孩子(R) 中插入新节点后导致不平衡
-     * 这种情况下需要左旋操作
+     * 删除子树中最小的节点
      *
-     *       y                 x
-     *      / \              /   \
-     *     t4  x            y     z
-     *        / \          / \   / \
-     *       t3  z        t4 t3 t2 t1
-     *          / \
-     *         t2  t1
+     * @param node 节点树
+     * @return 删除后的节点树
+     */
+    private Node removeMin(Update update, Node node) {
+        if (null == node.left) {
+            return node.right;
+        }
+        node = writable(node);
+        node.left = removeMin(update, node.left);
+        return update.balance(node);
+    }
+
+    /**
+     * 批量插入，整批数据只从根向下走一次：
+     * 1.在每个节点用二分查找把这一批数据分成小于和大于节点的两段，分别交给左右子树，等于节点的跳过
+     * 2.走到空位置时剩下的一段直接构建成完全平衡的子树，不需要逐个插入和旋转
+     * 3.返回时左右子树的高度可能相差很多，用 join 沿较高子树的边缘向下找到高度合适的位置挂上去，
+     * 每层最多调用一次 balance，所以每条被修改的路径只平衡一次，而不是每个数据平衡一次
+     * 数组无序时先排序，重复的元素只保留一个，传入的数组不会被修改
      *
-     * @param y 节点树
-     * @return 新节点树
+     * @param sortedBatch 有序的一批数据
      */
-    private Node RR(Node y) {
-        Node x = y.right;
-        Node t3 = x.left;
-        x.left = y;
-        y.right = t3;
-        //  更新节点高度
-        y.height = Math.max(getHeight(y.left), getHeight(y.right)) + 1;
-        x.height = Math.max(getHeight(x.left), getHeight(x.right)) + 1;
-        return x;
+    public void insertAll(int[] sortedBatch) {
+        checkWritable();
+        int[] keys = SortedKeys.sortedDistinct(sortedBatch);
+        if (keys.length == 0) {
+            return;
+        }
+        if (!persistent) {
+            Update update = new Update();
+            root = insertAll(update, root, keys, 0, keys.length - 1);
+            update.publish();
+            return;
+        }
+        Node current;
+        Node updated;
+        Update update;
+        do {
+            update = new Update();
+            current = root;
+            updated = insertAll(update, current, keys, 0, keys.length - 1);
+        } while (updated != current && !ROOT.compareAndSet(this, current, updated));
+        update.publish();
+    }
+
+    private Node insertAll(Update update, Node node, int[] keys, int lo, int hi) {
+        if (lo > hi) {
+            return node;
+        }
+        if (null == node) {
+            return build(keys, lo, hi);
+        }
+        int element = node.element;
+        int split = SortedKeys.lowerBound(keys, lo, hi, element);
+        int next = split <= hi && keys[split] == element ? split + 1 : split;
+        Node left = insertAll(update, node.left, keys, lo, split - 1);
+        Node right = insertAll(update, node.right, keys, next, hi);
+        //  非持久化模式下子树是原地修改的，根节点不变并不代表高度和节点数不变，所以总是需要重新连接
+        if (persistent && left == node.left && right == node.right) {
+            return node;
+        }
+        return join(update, left, writable(node), right);
     }
 
     /**
-     * LR: 向 左子树(L) 的 右孩子(R) 中插入新节点后导致不平衡
-     * 这种情况下需要 先x左旋 再y右旋
+     * 以 middle 为根连接 left 和 right，要求 left 中的元素都小于 middle，right 中的都大于 middle
+     * 两边高度相差不超过1时直接连接；否则沿较高一侧的边缘向下，直到子树和另一侧的高度相差不超过1
      *
-     *        y            y             z
-     *       / \          / \          /   \
-     *      x  t4        z  t4        x     y
-     *     / \          / \          / \   / \
-     *    t1  z        x  t3        t1 t2 t3 t4
-     *       / \      / \
-     *      t2 t3    t1 t2
-     * @param y 节点树
-     * @return 新节点树
-     */
-    private Node LR(Node y) {
-        //  以x为节点左旋
-        Node x = y.left;
-        Node z = x.right;
-        Node t2 = z.left;
-        y.left = z;
-        z.left = x;
-        x.right = t2;
-        //  以y为节点右旋
-        Node t3 = z.right;
-        z.right = y;
-        y.left = t3;
-        //  更新节点高度
-        x.height = Math.max(getHeight(x.left), getHeight(x.right)) + 1;
-        y.height = Math.max(getHeight(y.left), getHeight(y.right)) + 1;
-        z.height = Math.max(getHeight(z.left), getHeight(z.right)) + 1;
-        //  返回新的根节点
-        return z;
-    }
-
-    /**
-     * RL: 向 右子树(R) 的 左孩子(L) 中插入新节点后导致不平衡
-     * 这种情况下需要 先x右旋 再y左旋
+     * @param update 这次操作的平衡器
+     * @param left   左子树
+     * @param middle 可以修改的节点
+     * @param right  右子树
+     * @return 平衡的子树
+     */
+    private Node join(Update update, Node left, Node middle, Node right) {
+        int leftHeight = getHeight(left);
+        int rightHeight = getHeight(right);
+        if (leftHeight > rightHeight + 1) {
+            return joinRight(update, left, middle, right);
+        }
+        if (rightHeight > leftHeight + 1) {
+            return joinLeft(update, left, middle, right);
+        }
+        middle.left = left;
+        middle.right = right;
+        update(middle);
+        return middle;
+    }
+
+    /**
+     * left 较高时沿 left 的右边缘向下，挂上之后每层的高度差不超过2，一次 balance 即可恢复
+     */
+    private Node joinRight(Update update, Node left, Node middle, Node right) {
+        left = writable(left);
+        Node child = left.right;
+        if (getHeight(child) <= getHeight(right) + 1) {
+            middle.left = child;
+            middle.right = right;
+            update(middle);
+            left.right = middle;
+        } else {
+            left.right = joinRight(update, child, middle, right);
+        }
+        return update.balance(left);
+    }
+
+    private Node joinLeft(Update update, Node left, Node middle, Node right) {
+        right = writable(right);
+        Node child = right.left;
+        if (getHeight(child) <= getHeight(left) + 1) {
+            middle.left = left;
+            middle.right = child;
+            update(middle);
+            right.left = middle;
+        } else {
+            right.left = joinLeft(update, left, middle, child);
+        }
+        return update.balance(right);
+    }
+
+    /**
+     * 批量查找，和 insertAll 一样在每个节点把这一批数据分成两段，每个节点最多访问一次
      *
-     *         y               y                z
-     *        / \             / \             /   \
-     *       t1  x           t1  z           y     x
-     *          / \             / \         / \   / \
-     *         z  t4           t2  x       t1 t2 t3 t4
-     *        / \                 / \
-     *       t2 t3               t3 t4
+     * @param sortedBatch 升序的一批数据，可以有重复
+     * @param out         out[i] 为 sortedBatch[i] 是否存在，长度不能小于 sortedBatch
+     */
+    public void containsAll(int[] sortedBatch, boolean[] out) {
+        SortedKeys.checkBatch(sortedBatch, out);
+        Arrays.fill(out, 0, sortedBatch.length, false);
+        containsAll(root, sortedBatch, 0, sortedBatch.length - 1, out);
+    }
+
+    private void containsAll(Node node, int[] keys, int lo, int hi, boolean[] out) {
+        if (null == node || lo > hi) {
+            return;
+        }
+        int element = node.element;
+        int split = SortedKeys.lowerBound(keys, lo, hi, element);
+        int next = split;
+        while (next <= hi && keys[next] == element) {
+            out[next++] = true;
+        }
+        containsAll(node.left, keys, lo, split - 1, out);
+        containsAll(node.right, keys, next, hi, out);
+    }
+
+    /**
+     * 小于 e 的元素个数，沿一条路径向下，每次向右走时累加左子树的节点数
      *
-     * @param y
-     * @return
-     */
-    private Node RL(Node y) {
-        //  以x为节点右旋
-        Node x = y.right;
-        Node z = x.left;
-        Node t3 = z.right;
-        y.right = z;
-        z.right = x;
-        x.left = t3;
-        //  以y为节点左旋
-        Node t2 = z.left;
-        z.left = y;
-        y.right = t2;
-        //  更新节点高度
-        x.height = Math.max(getHeight(x.left), getHeight(x.right)) + 1;
-        y.height = Math.max(getHeight(y.left), getHeight(y.right)) + 1;
-        z.height = Math.max(getHeight(z.left), getHeight(z.right)) + 1;
-        //  返回新的根节点
-        return z;
+     * @param e 数据
+     * @return 排名(从0开始)
+     */
+    public int rank(Integer e) {
+        return rank(e, false);
     }
 
-    public void add(Integer e) {
-        root = add(root, e);
+    /**
+     * @param e         数据
+     * @param inclusive 是否把等于 e 的元素也计算在内
+     * @return 小于(或小于等于) e 的元素个数
+     */
+    private int rank(Integer e, boolean inclusive) {
+        int rank = 0;
+        Node node = root;
+        while (null != node) {
+            int result = e.compareTo(node.element);
+            if (result < 0) {
+                node = node.left;
+            } else if (result > 0) {
+                rank += getSize(node.left) + 1;
+                node = node.right;
+            } else {
+                rank += getSize(node.left);
+                return inclusive ? rank + 1 : rank;
+            }
+        }
+        return rank;
     }
 
-    private Node add(Node node, Integer e) {
-        //  节点为空，插入元素
-        if(null == node) {
-            size ++;
-            return new Node(e, null, null);
+    /**
+     * 获取第 i 小的元素(从0开始)，根据左子树的节点数决定向哪边走
+     *
+     * @param i 排名
+     * @return 元素
+     */
+    public Integer select(int i) {
+        Node node = root;
+        int size = getSize(node);
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("排名越界: " + i + ", size: " + size);
         }
-        //  节点不为空，递归添加元素
-        if(e.compareTo(node.element) > 0) {
-            //  比当前节点大
-            node.right = add(node.right, e);
-        } else if(e.compareTo(node.element) < 0) {
-            //  比当前节点小
-            node.left = add(node.left, e);
+        while (true) {
+            int leftSize = getSize(node.left);
+            if (i < leftSize) {
+                node = node.left;
+            } else if (i > leftSize) {
+                i -= leftSize + 1;
+                node = node.right;
+            } else {
+                return node.element;
+            }
         }
-        //  更新高度
-        node.height = Math.max(getHeight(node.left), getHeight(node.right)) + 1;
-        //  计算平衡因子
-        int bf = getBalanceFactor(node);
-        //  当前节点左子树不平衡且当前节点的左子树的平衡因子大于0，说明是LL，右旋
-        if(bf > 1 && getBalanceFactor(node.left) > 0) {
-            return LL(node);
+    }
+
+    /**
+     * 统计 [lo, hi] 区间内的元素个数
+     *
+     * @param lo 下界(包含)
+     * @param hi 上界(包含)
+     * @return 元素个数
+     */
+    public int countInRange(Integer lo, Integer hi) {
+        if (lo.compareTo(hi) > 0) {
+            return 0;
+        }
+        return rank(hi, true) - rank(lo, false);
+    }
+
+    /**
+     * 冻结为只读的 Eytzinger 索引，适合构建一次之后只做查询的场景
+     * 之后对树的修改不会反映到索引中
+     *
+     * @return 索引
+     */
+    public EytzingerIndex freeze() {
+        return EytzingerIndex.of(toSortedArray());
+    }
+
+    /**
+     * 在树外面包装热点缓存和计数布隆过滤器，之后对树的修改需要通过返回的加速器进行
+     *
+     * @param cacheCapacity 热点缓存的键数
+     * @param expectedKeys  预计树中最多的键数
+     * @return 加速器
+     */
+    public LookupAccelerator accelerate(int cacheCapacity, int expectedKeys) {
+        return new LookupAccelerator(this::contains, this::add, this::remove, toSortedArray(), cacheCapacity,
+                expectedKeys);
+    }
+
+    /**
+     * 元素个数已知，中序遍历直接写入数组
+     *
+     * @return 有序数组
+     */
+    private int[] toSortedArray() {
+        Node start = root;
+        int[] keys = new int[getSize(start)];
+        int count = 0;
+        ArrayDeque<Node> stack = new ArrayDeque<>();
+        Node current = start;
+        while (null != current || !stack.isEmpty()) {
+            while (null != current) {
+                stack.push(current);
+                current = current.left;
+            }
+            current = stack.pop();
+            keys[count++] = current.element;
+            current = current.right;
+        }
+        return keys;
+    }
+
+    /**
+     * 按升序对 [lo, hi] 中的每个元素执行 action
+     * 元素小于 lo 时跳过左子树，大于 hi 时跳过右子树，只访问区间两侧的两条边界路径和区间内的节点，O(log n + k)
+     * 只对左子树递归，右子树用循环代替，递归深度不超过树高，不分配内存
+     *
+     * @param lo     下界(包含)
+     * @param hi     上界(包含)
+     * @param action 操作
+     */
+    public void forEachInRange(int lo, int hi, IntConsumer action) {
+        forEachInRange(root, lo, hi, action);
+    }
+
+    private void forEachInRange(Node node, int lo, int hi, IntConsumer action) {
+        while (null != node) {
+            int element = node.element;
+            if (element < lo) {
+                node = node.right;
+            } else if (element > hi) {
+                node = node.left;
+            } else {
+                forEachInRange(node.left, lo, hi, action);
+                action.accept(element);
+                node = node.right;
+            }
         }
-        if(bf > 1 && getBalanceFactor(node.left) < 0) {
-            return LR(node);
+    }
+
+    /**
+     * @return 一个可以反复使用的区间游标，先调用 {@link RangeCursor#reset(int, int)} 再遍历
+     */
+    public RangeCursor rangeCursor() {
+        return new RangeCursor();
+    }
+
+    /**
+     * 可以反复使用的区间游标
+     * <p>
+     * 栈是预先分配的节点数组，reset 时按当前树高确定大小，只有树变高时才重新分配，所以重复扫描不分配内存。
+     * reset 从根向下定位到第一个 >= lo 的元素，比 lo 小的节点不入栈(跳过它们的左子树)；
+     * 之后每次弹出一个节点，把它右子树的左链入栈，遇到大于 hi 的元素时结束。栈中的节点数不超过树高
+     * <p>
+     * reset 时固定当前的根，普通模式下遍历期间不能修改树
+     */
+    public final class RangeCursor implements PrimitiveIterator.OfInt {
+
+        private Node[] stack = new Node[0];
+
+        private int depth;
+
+        private int hi;
+
+        private RangeCursor() {
         }
-        if(bf < -1 && getBalanceFactor(node.right) > 0) {
-            return RR(node);
+
+        /**
+         * 定位到 [lo, hi] 的第一个元素
+         *
+         * @param lo 下界(包含)
+         * @param hi 上界(包含)
+         * @return 游标本身
+         */
+        public RangeCursor reset(int lo, int hi) {
+            Node node = root;
+            int height = getHeight(node);
+            if (stack.length < height) {
+                stack = new Node[height];
+            }
+            this.hi = hi;
+            depth = 0;
+            while (null != node) {
+                if (node.element < lo) {
+                    node = node.right;
+                } else {
+                    stack[depth++] = node;
+                    node = node.left;
+                }
+            }
+            return this;
         }
-        if(bf < -1 && getBalanceFactor(node.right) < 0) {
-            return RL(node);
+
+        @Override
+        public boolean hasNext() {
+            return depth > 0 && stack[depth - 1].element <= hi;
         }
-        return node;
+
+        @Override
+        public int nextInt() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Node node = stack[--depth];
+            stack[depth] = null;
+            for (Node child = node.right; null != child; child = child.left) {
+                stack[depth++] = child;
+            }
+            return node.element;
+        }
+    }
+
+    /**
+     * 中序遍历的迭代器，创建时固定当前的根
+     * 对快照(或持久化模式)遍历时不需要加锁，普通模式下遍历期间不能修改
+     *
+     * @return 迭代器
+     */
+    @Override
+    public Iterator<Integer> iterator() {
+        Node start = root;
+        return new Iterator<Integer>() {
+
+            private final ArrayDeque<Node> stack = new ArrayDeque<>();
+
+            {
+                pushLeft(start);
+            }
+
+            private void pushLeft(Node node) {
+                while (null != node) {
+                    stack.push(node);
+                    node = node.left;
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                return !stack.isEmpty();
+            }
+
+            @Override
+            public Integer next() {
+                if (stack.isEmpty()) {
+                    throw new NoSuchElementException();
+                }
+                Node node = stack.pop();
+                pushLeft(node.right);
+                return node.element;
+            }
+        };
     }
 }
@@ -0,0 +1,225 @@
+package AVL;
+
+import Common.TreeMetrics;
+
+/**
+ * AVL 和 AVLMap 共用的旋转与平衡
+ * <p>
+ * 节点继承 {@link BalancedNode}，只需要提供左右孩子和高度；节点还有其他需要自下而上维护的数据(例如子树大小)时重写 {@link BalancedNode#update()}
+ * 1.{@link #writable(BalancedNode)}：旋转会修改孩子和孙子，持久化模式下重写为返回节点的副本
+ * 2.{@link #rotated(TreeMetrics.Rotation)}：每次旋转后调用，用于统计
+ *
+ * @param <N> 节点类型
+ */
+class AVLBalancer<N extends AVLBalancer.BalancedNode<N>> {
+
+    abstract static class BalancedNode<N extends BalancedNode<N>> {
+        /**
+         * 左节点
+         */
+        N left;
+        /**
+         * 右节点
+         */
+        N right;
+        /**
+         * 当前节点的高度
+         */
+        int height = 1;
+
+        /**
+         * 由孩子更新当前节点，旋转和插入删除之后都需要自下而上调用
+         */
+        void update() {
+            height = Math.max(height(left), height(right)) + 1;
+        }
+    }
+
+    static int height(BalancedNode<?> node) {
+        return null == node ? 0 : node.height;
+    }
+
+    /**
+     * 平衡因子(Balance Factor, BF)：某节点的左子树和右子树的高度差
+     *
+     * @param node 节点
+     * @return 平衡因子
+     */
+    static int balanceFactor(BalancedNode<?> node) {
+        return null == node ? 0 : height(node.left) - height(node.right);
+    }
+
+    /**
+     * 旋转前对要修改的孩子调用
+     *
+     * @param node 节点
+     * @return 可以修改的节点，默认就是它本身
+     */
+    N writable(N node) {
+        return node;
+    }
+
+    /**
+     * 每次旋转后调用
+     *
+     * @param rotation 旋转的类型
+     */
+    void rotated(TreeMetrics.Rotation rotation) {
+    }
+
+    /**
+     * LL: 向 左子树(L) 的 左孩子(L) 中插入新节点后导致不平衡
+     * 这种情况下需要右旋操作
+     *
+     *       y               x
+     *      / \            /   \
+     *     x   t4         z     y
+     *    / \            / \   / \
+     *   z   t3         t1 t2 t3 t4
+     *  / \
+     * t1  t2
+     *
+     * @param y 节点树
+     * @return 新节点树
+     */
+    final N LL(N y) {
+        N x = y.left;
+        N t3 = x.right;
+        x.right = y;
+        y.left = t3;
+        //  更新节点
+        y.update();
+        x.update();
+        return x;
+    }
+
+    /**
+     * RR: 向 右子树(R) 的 右孩子(R) 中插入新节点后导致不平衡
+     * 这种情况下需要左旋操作
+     *
+     *       y                 x
+     *      / \              /   \
+     *     t4  x            y     z
+     *        / \          / \   / \
+     *       t3  z        t4 t3 t2 t1
+     *          / \
+     *         t2  t1
+     *
+     * @param y 节点树
+     * @return 新节点树
+     */
+    final N RR(N y) {
+        N x = y.right;
+        N t3 = x.left;
+        x.left = y;
+        y.right = t3;
+        //  更新节点
+        y.update();
+        x.update();
+        return x;
+    }
+
+    /**
+     * LR: 向 左子树(L) 的 右孩子(R) 中插入新节点后导致不平衡
+     * 这种情况下需要 先x左旋 再y右旋
+     *
+     *        y            y             z
+     *       / \          / \          /   \
+     *      x  t4        z  t4        x     y
+     *     / \          / \          / \   / \
+     *    t1  z        x  t3        t1 t2 t3 t4
+     *       / \      / \
+     *      t2 t3    t1 t2
+     * @param y 节点树
+     * @return 新节点树
+     */
+    final N LR(N y) {
+        //  以x为节点左旋
+        N x = y.left;
+        N z = x.right;
+        N t2 = z.left;
+        y.left = z;
+        z.left = x;
+        x.right = t2;
+        //  以y为节点右旋
+        N t3 = z.right;
+        z.right = y;
+        y.left = t3;
+        //  更新节点
+        x.update();
+        y.update();
+        z.update();
+        //  返回新的根节点
+        return z;
+    }
+
+    /**
+     * RL: 向 右子树(R) 的 左孩子(L) 中插入新节点后导致不平衡
+     * 这种情况下需要 先x右旋 再y左旋
+     *
+     *         y               y                z
+     *        / \             / \             /   \
+     *       t1  x           t1  z           y     x
+     *          / \             / \         / \   / \
+     *         z  t4           t2  x       t1 t2 t3 t4
+     *        / \                 / \
+     *       t2 t3               t3 t4
+     *
+     * @param y 节点树
+     * @return 新节点树
+     */
+    final N RL(N y) {
+        //  以x为节点右旋
+        N x = y.right;
+        N z = x.left;
+        N t3 = z.right;
+        y.right = z;
+        z.right = x;
+        x.left = t3;
+        //  以y为节点左旋
+        N t2 = z.left;
+        z.left = y;
+        y.right = t2;
+        //  更新节点
+        x.update();
+        y.update();
+        z.update();
+        //  返回新的根节点
+        return z;
+    }
+
+    /**
+     * 更新节点并在失衡时旋转
+     * 1.左子树高，左孩子的平衡因子 >= 0 是LL，右旋；否则是LR
+     * 2.右子树高，右孩子的平衡因子 <= 0 是RR，左旋；否则是RL
+     * 删除节点后孩子的平衡因子可能为0，此时单旋即可，所以判断时带上等号
+     *
+     * @param node 节点，必须是可以修改的
+     * @return 平衡后的节点
+     */
+    final N balance(N node) {
+        node.update();
+        int bf = balanceFactor(node);
+        if (bf > 1) {
+            node.left = writable(node.left);
+            if (balanceFactor(node.left) >= 0) {
+                rotated(TreeMetrics.Rotation.LL);
+                return LL(node);
+            }
+            node.left.right = writable(node.left.right);
+            rotated(TreeMetrics.Rotation.LR);
+            return LR(node);
+        }
+        if (bf < -1) {
+            node.right = writable(node.right);
+            if (balanceFactor(node.right) <= 0) {
+                rotated(TreeMetrics.Rotation.RR);
+                return RR(node);
+            }
+            node.right.left = writable(node.right.left);
+            rotated(TreeMetrics.Rotation.RL);
+            return RL(node);
+        }
+        return node;
+    }
+}
@@ -0,0 +1,1161 @@
+package AVL;
+
+import Common.TreeMetrics;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+
+/**
+ * 键值对的平衡二叉搜索树
+ * <p>
+ * 旋转和平衡与 {@link AVL} 共用 {@link AVLBalancer}，区别在于：
+ * 1.节点同时保存键和值，一次 O(log n) 的查找既确定顺序也取到值，不需要另外用 HashMap 保存数据
+ * 2.键是泛型的，比较器在构造时确定并缓存；没有指定比较器时使用键的自然顺序
+ * 3.floorEntry、ceilingEntry 等只沿一条路径向下查找；subMap、headMap、tailMap、descendingMap 返回的是视图，
+ * 不复制数据，对视图的修改直接作用于这棵树，遍历视图时从区间的一端开始用栈逐个向后走，只访问区间内的节点
+ * <p>
+ * 删除有两个孩子的节点时把后继节点整个移到它的位置上，而不是复制键值，所以已经取得的 Map.Entry 不会变成别的键
+ * <p>
+ * 键不能为 null，非线程安全，遍历期间修改(迭代器自己的 remove 除外)会抛出 ConcurrentModificationException
+ *
+ * @param <K> 键
+ * @param <V> 值
+ */
+public class AVLMap<K, V> extends AbstractMap<K, V> implements NavigableMap<K, V> {
+
+    private static final class Node<K, V> extends AVLBalancer.BalancedNode<Node<K, V>> implements Map.Entry<K, V> {
+
+        private final K key;
+
+        private V value;
+
+        private Node(K key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public K getKey() {
+            return key;
+        }
+
+        @Override
+        public V getValue() {
+            return value;
+        }
+
+        @Override
+        public V setValue(V value) {
+            V old = this.value;
+            this.value = value;
+            return old;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+            return key.equals(e.getKey()) && (null == value ? null == e.getValue() : value.equals(e.getValue()));
+        }
+
+        @Override
+        public int hashCode() {
+            return key.hashCode() ^ (null == value ? 0 : value.hashCode());
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + value;
+        }
+    }
+
+    /**
+     * 构造时传入的比较器，可能为 null
+     */
+    private final Comparator<? super K> comparator;
+
+    /**
+     * 实际使用的比较器，自然顺序时为 Comparator.naturalOrder()，比较时不需要判断
+     */
+    private final Comparator<? super K> order;
+
+    private Node<K, V> root;
+
+    private int size;
+
+    /**
+     * 结构修改的次数，用于迭代器的快速失败
+     */
+    private int modCount;
+
+    /**
+     * 旋转以及把后继节点移到被删除节点位置上的次数，迭代器删除后据此判断栈中的路径是否仍然有效
+     */
+    private int restructures;
+
+    private final AVLBalancer<Node<K, V>> balancer = new AVLBalancer<Node<K, V>>() {
+        @Override
+        void rotated(TreeMetrics.Rotation rotation) {
+            restructures++;
+        }
+    };
+
+    public AVLMap() {
+        this(null);
+    }
+
+    /**
+     * @param comparator 键的比较器，为 null 时使用键的自然顺序
+     */
+    @SuppressWarnings("unchecked")
+    public AVLMap(Comparator<? super K> comparator) {
+        this.comparator = comparator;
+        this.order = null == comparator ? (Comparator<? super K>) Comparator.naturalOrder() : comparator;
+    }
+
+    @Override
+    public Comparator<? super K> comparator() {
+        return comparator;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        root = null;
+        size = 0;
+        modCount++;
+    }
+
+    @SuppressWarnings("unchecked")
+    private int compare(Object a, K b) {
+        return order.compare((K) a, b);
+    }
+
+    private static void checkKey(Object key) {
+        if (null == key) {
+            throw new NullPointerException("键不能为 null");
+        }
+    }
+
+    private Node<K, V> getNode(Object key) {
+        checkKey(key);
+        Node<K, V> node = root;
+        while (null != node) {
+            int result = compare(key, node.key);
+            if (result == 0) {
+                return node;
+            }
+            node = result < 0 ? node.left : node.right;
+        }
+        return null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return null != getNode(key);
+    }
+
+    @Override
+    public V get(Object key) {
+        Node<K, V> node = getNode(key);
+        return null == node ? null : node.value;
+    }
+
+    /**
+     * 先查找，键已经存在时直接覆盖值，不改变结构；否则再向下插入
+     *
+     * @param key   键
+     * @param value 值
+     * @return 旧值，键不存在时返回 null
+     */
+    @Override
+    public V put(K key, V value) {
+        if (null == root) {
+            checkKey(key);
+            //  空树时也要检查键是否可比较
+            compare(key, key);
+        }
+        Node<K, V> node = getNode(key);
+        if (null != node) {
+            return node.setValue(value);
+        }
+        root = insert(root, key, value);
+        size++;
+        modCount++;
+        return null;
+    }
+
+    /**
+     * 插入一个不存在的键
+     */
+    private Node<K, V> insert(Node<K, V> node, K key, V value) {
+        if (null == node) {
+            return new Node<>(key, value);
+        }
+        if (compare(key, node.key) > 0) {
+            node.right = insert(node.right, key, value);
+        } else {
+            node.left = insert(node.left, key, value);
+        }
+        return balancer.balance(node);
+    }
+
+    @Override
+    public V remove(Object key) {
+        Node<K, V> node = getNode(key);
+        if (null == node) {
+            return null;
+        }
+        deleteNode(node);
+        return node.value;
+    }
+
+    /**
+     * 删除树中的一个节点
+     */
+    private void deleteNode(Node<K, V> node) {
+        root = delete(root, node.key);
+        size--;
+        modCount++;
+    }
+
+    /**
+     * 删除一个存在的键
+     */
+    private Node<K, V> delete(Node<K, V> node, Object key) {
+        int result = compare(key, node.key);
+        if (result > 0) {
+            node.right = delete(node.right, key);
+        } else if (result < 0) {
+            node.left = delete(node.left, key);
+        } else {
+            if (null == node.left) {
+                return node.right;
+            }
+            if (null == node.right) {
+                return node.left;
+            }
+            //  两个孩子时把后继节点摘下来放到当前节点的位置
+            Node<K, V> successor = node.right;
+            while (null != successor.left) {
+                successor = successor.left;
+            }
+            successor.right = removeMin(node.right);
+            successor.left = node.left;
+            restructures++;
+            node = successor;
+        }
+        return balancer.balance(node);
+    }
+
+    private Node<K, V> removeMin(Node<K, V> node) {
+        if (null == node.left) {
+            return node.right;
+        }
+        node.left = removeMin(node.left);
+        return balancer.balance(node);
+    }
+
+    /**
+     * 大于等于(inclusive 为 false 时大于) key 的最小节点
+     */
+    private Node<K, V> ceilingNode(Object key, boolean inclusive) {
+        checkKey(key);
+        Node<K, V> node = root;
+        Node<K, V> candidate = null;
+        while (null != node) {
+            int result = compare(key, node.key);
+            if (result < 0 || (inclusive && result == 0)) {
+                candidate = node;
+                if (result == 0) {
+                    return node;
+                }
+                node = node.left;
+            } else {
+                node = node.right;
+            }
+        }
+        return candidate;
+    }
+
+    /**
+     * 小于等于(inclusive 为 false 时小于) key 的最大节点
+     */
+    private Node<K, V> floorNode(Object key, boolean inclusive) {
+        checkKey(key);
+        Node<K, V> node = root;
+        Node<K, V> candidate = null;
+        while (null != node) {
+            int result = compare(key, node.key);
+            if (result > 0 || (inclusive && result == 0)) {
+                candidate = node;
+                if (result == 0) {
+                    return node;
+                }
+                node = node.right;
+            } else {
+                node = node.left;
+            }
+        }
+        return candidate;
+    }
+
+    private Node<K, V> firstNode() {
+        Node<K, V> node = root;
+        while (null != node && null != node.left) {
+            node = node.left;
+        }
+        return node;
+    }
+
+    private Node<K, V> lastNode() {
+        Node<K, V> node = root;
+        while (null != node && null != node.right) {
+            node = node.right;
+        }
+        return node;
+    }
+
+    /**
+     * 返回不可修改的副本，之后对树的修改不会影响它
+     */
+    private static <K, V> Map.Entry<K, V> export(Node<K, V> node) {
+        return null == node ? null : new SimpleImmutableEntry<>(node.key, node.value);
+    }
+
+    private static <K> K key(Node<K, ?> node) {
+        if (null == node) {
+            throw new NoSuchElementException();
+        }
+        return node.key;
+    }
+
+    private static <K> K keyOrNull(Node<K, ?> node) {
+        return null == node ? null : node.key;
+    }
+
+    /**
+     * 删除节点并返回它的副本
+     */
+    private Map.Entry<K, V> poll(Node<K, V> node) {
+        if (null == node) {
+            return null;
+        }
+        Map.Entry<K, V> entry = export(node);
+        deleteNode(node);
+        return entry;
+    }
+
+    @Override
+    public Map.Entry<K, V> firstEntry() {
+        return export(firstNode());
+    }
+
+    @Override
+    public Map.Entry<K, V> lastEntry() {
+        return export(lastNode());
+    }
+
+    @Override
+    public Map.Entry<K, V> pollFirstEntry() {
+        return poll(firstNode());
+    }
+
+    @Override
+    public Map.Entry<K, V> pollLastEntry() {
+        return poll(lastNode());
+    }
+
+    @Override
+    public K firstKey() {
+        return key(firstNode());
+    }
+
+    @Override
+    public K lastKey() {
+        return key(lastNode());
+    }
+
+    /**
+     * @return 小于等于 key 的最大键值对，不存在时返回 null
+     */
+    @Override
+    public Map.Entry<K, V> floorEntry(K key) {
+        return export(floorNode(key, true));
+    }
+
+    /**
+     * @return 大于等于 key 的最小键值对，不存在时返回 null
+     */
+    @Override
+    public Map.Entry<K, V> ceilingEntry(K key) {
+        return export(ceilingNode(key, true));
+    }
+
+    /**
+     * @return 小于 key 的最大键值对，不存在时返回 null
+     */
+    @Override
+    public Map.Entry<K, V> lowerEntry(K key) {
+        return export(floorNode(key, false));
+    }
+
+    /**
+     * @return 大于 key 的最小键值对，不存在时返回 null
+     */
+    @Override
+    public Map.Entry<K, V> higherEntry(K key) {
+        return export(ceilingNode(key, false));
+    }
+
+    @Override
+    public K floorKey(K key) {
+        return keyOrNull(floorNode(key, true));
+    }
+
+    @Override
+    public K ceilingKey(K key) {
+        return keyOrNull(ceilingNode(key, true));
+    }
+
+    @Override
+    public K lowerKey(K key) {
+        return keyOrNull(floorNode(key, false));
+    }
+
+    @Override
+    public K higherKey(K key) {
+        return keyOrNull(ceilingNode(key, false));
+    }
+
+    /**
+     * [fromKey, toKey) 区间的视图
+     */
+    @Override
+    public SortedMap<K, V> subMap(K fromKey, K toKey) {
+        return subMap(fromKey, true, toKey, false);
+    }
+
+    /**
+     * 区间视图，上下界是否包含由参数决定
+     *
+     * @param fromKey       下界
+     * @param fromInclusive 是否包含下界
+     * @param toKey         上界
+     * @param toInclusive   是否包含上界
+     * @return 视图
+     */
+    @Override
+    public NavigableMap<K, V> subMap(K fromKey, boolean fromInclusive, K toKey, boolean toInclusive) {
+        return new View(fromKey, fromInclusive, false, toKey, toInclusive, false, false);
+    }
+
+    /**
+     * 小于 toKey 的部分的视图
+     */
+    @Override
+    public SortedMap<K, V> headMap(K toKey) {
+        return headMap(toKey, false);
+    }
+
+    @Override
+    public NavigableMap<K, V> headMap(K toKey, boolean inclusive) {
+        return new View(null, true, true, toKey, inclusive, false, false);
+    }
+
+    /**
+     * 大于等于 fromKey 的部分的视图
+     */
+    @Override
+    public SortedMap<K, V> tailMap(K fromKey) {
+        return tailMap(fromKey, true);
+    }
+
+    @Override
+    public NavigableMap<K, V> tailMap(K fromKey, boolean inclusive) {
+        return new View(fromKey, inclusive, false, null, true, true, false);
+    }
+
+    /**
+     * 整棵树按降序排列的视图
+     */
+    @Override
+    public NavigableMap<K, V> descendingMap() {
+        return new View(null, true, true, null, true, true, true);
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        return new View(null, true, true, null, true, true, false).entrySet();
+    }
+
+    @Override
+    public Set<K> keySet() {
+        return navigableKeySet();
+    }
+
+    @Override
+    public NavigableSet<K> navigableKeySet() {
+        return new KeySet<>(this);
+    }
+
+    @Override
+    public NavigableSet<K> descendingKeySet() {
+        return descendingMap().navigableKeySet();
+    }
+
+    /**
+     * 按顺序遍历区间内的节点
+     * 创建时从根向下找到起点(升序时为下界，降序时为上界)，路径上所有在起点这一侧的节点入栈，
+     * 之后和普通的中序遍历一样每次弹出一个节点，再把它另一侧子树的边链入栈，越过终点时结束。栈的深度不超过树高
+     */
+    private final class EntryIterator implements Iterator<Map.Entry<K, V>> {
+
+        private final ArrayDeque<Node<K, V>> stack = new ArrayDeque<>();
+
+        private final View range;
+
+        private Node<K, V> last;
+
+        private int expectedModCount = modCount;
+
+        private EntryIterator(View range) {
+            this.range = range;
+            if (range.descending) {
+                seek(range.hi, range.hiInclusive, range.toEnd);
+            } else {
+                seek(range.lo, range.loInclusive, range.fromStart);
+            }
+        }
+
+        /**
+         * 把从根到起点的路径上，起点及其之后(按遍历方向)的节点入栈
+         *
+         * @param from      起点
+         * @param inclusive 是否包含起点
+         * @param unbounded 是否没有起点，从最小(降序时为最大)的节点开始
+         */
+        private void seek(K from, boolean inclusive, boolean unbounded) {
+            stack.clear();
+            Node<K, V> node = root;
+            while (null != node) {
+                int result = unbounded ? 0 : compare(node.key, from);
+                if (range.descending) {
+                    result = -result;
+                }
+                if (unbounded || result > 0 || (inclusive && result == 0)) {
+                    stack.push(node);
+                    node = range.descending ? node.right : node.left;
+                } else {
+                    node = range.descending ? node.left : node.right;
+                }
+            }
+        }
+
+        private void pushEdge(Node<K, V> node) {
+            while (null != node) {
+                stack.push(node);
+                node = range.descending ? node.right : node.left;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (stack.isEmpty()) {
+                return false;
+            }
+            K key = stack.peek().key;
+            return range.descending ? !range.tooLow(key) : !range.tooHigh(key);
+        }
+
+        @Override
+        public Map.Entry<K, V> next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Node<K, V> node = stack.pop();
+            pushEdge(range.descending ? node.left : node.right);
+            last = node;
+            return node;
+        }
+
+        /**
+         * 没有旋转、也没有移动后继节点时，栈中的节点和它们的子树都没有变化，可以继续使用；
+         * 否则从根按下一个键重新定位
+         */
+        @Override
+        public void remove() {
+            if (null == last) {
+                throw new IllegalStateException();
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            Node<K, V> next = stack.peek();
+            int before = restructures;
+            deleteNode(last);
+            last = null;
+            expectedModCount = modCount;
+            if (restructures != before) {
+                if (null == next) {
+                    stack.clear();
+                } else {
+                    seek(next.key, true, false);
+                }
+            }
+        }
+    }
+
+    /**
+     * 区间视图，所有操作都转发给外层的树，超出区间的键被视为不存在，put 超出区间的键抛出 IllegalArgumentException
+     * <p>
+     * lo、hi 总是按树的顺序表示区间的下界和上界；descending 为 true 时视图按降序排列，
+     * 此时 first/higher/headMap 等方法分别对应树中的 last/lower/tailMap
+     */
+    private final class View extends AbstractMap<K, V> implements NavigableMap<K, V> {
+
+        private final K lo;
+        private final boolean loInclusive;
+        private final boolean fromStart;
+        private final K hi;
+        private final boolean hiInclusive;
+        private final boolean toEnd;
+        private final boolean descending;
+
+        private View(K lo, boolean loInclusive, boolean fromStart, K hi, boolean hiInclusive, boolean toEnd,
+                     boolean descending) {
+            if (!fromStart && !toEnd && compare(lo, hi) > 0) {
+                throw new IllegalArgumentException("下界大于上界");
+            }
+            if (!fromStart) {
+                checkKey(lo);
+                //  检查键是否可比较
+                compare(lo, lo);
+            }
+            if (!toEnd) {
+                checkKey(hi);
+                compare(hi, hi);
+            }
+            this.lo = lo;
+            this.loInclusive = loInclusive;
+            this.fromStart = fromStart;
+            this.hi = hi;
+            this.hiInclusive = hiInclusive;
+            this.toEnd = toEnd;
+            this.descending = descending;
+        }
+
+        private boolean tooLow(Object key) {
+            if (fromStart) {
+                return false;
+            }
+            int result = compare(key, lo);
+            return result < 0 || (result == 0 && !loInclusive);
+        }
+
+        private boolean tooHigh(Object key) {
+            if (toEnd) {
+                return false;
+            }
+            int result = compare(key, hi);
+            return result > 0 || (result == 0 && !hiInclusive);
+        }
+
+        private boolean inRange(Object key) {
+            return !tooLow(key) && !tooHigh(key);
+        }
+
+        //  以下 abs 开头的方法按树的顺序查找，结果超出区间时返回 null
+
+        private Node<K, V> absLowest() {
+            Node<K, V> node = fromStart ? firstNode() : ceilingNode(lo, loInclusive);
+            return null == node || tooHigh(node.key) ? null : node;
+        }
+
+        private Node<K, V> absHighest() {
+            Node<K, V> node = toEnd ? lastNode() : floorNode(hi, hiInclusive);
+            return null == node || tooLow(node.key) ? null : node;
+        }
+
+        private Node<K, V> absCeiling(Object key, boolean inclusive) {
+            if (tooLow(key)) {
+                return absLowest();
+            }
+            Node<K, V> node = ceilingNode(key, inclusive);
+            return null == node || tooHigh(node.key) ? null : node;
+        }
+
+        private Node<K, V> absFloor(Object key, boolean inclusive) {
+            if (tooHigh(key)) {
+                return absHighest();
+            }
+            Node<K, V> node = floorNode(key, inclusive);
+            return null == node || tooLow(node.key) ? null : node;
+        }
+
+        //  以下方法按视图的顺序查找
+
+        private Node<K, V> lowest() {
+            return descending ? absHighest() : absLowest();
+        }
+
+        private Node<K, V> highest() {
+            return descending ? absLowest() : absHighest();
+        }
+
+        private Node<K, V> ceiling(Object key, boolean inclusive) {
+            return descending ? absFloor(key, inclusive) : absCeiling(key, inclusive);
+        }
+
+        private Node<K, V> floor(Object key, boolean inclusive) {
+            return descending ? absCeiling(key, inclusive) : absFloor(key, inclusive);
+        }
+
+        @Override
+        public Comparator<? super K> comparator() {
+            return descending ? Collections.reverseOrder(comparator) : comparator;
+        }
+
+        @Override
+        public Set<Map.Entry<K, V>> entrySet() {
+            return new EntrySet(this);
+        }
+
+        @Override
+        public int size() {
+            return entrySet().size();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return null == lowest();
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return inRange(key) && AVLMap.this.containsKey(key);
+        }
+
+        @Override
+        public V get(Object key) {
+            return inRange(key) ? AVLMap.this.get(key) : null;
+        }
+
+        @Override
+        public V put(K key, V value) {
+            if (!inRange(key)) {
+                throw new IllegalArgumentException("键超出视图的范围: " + key);
+            }
+            return AVLMap.this.put(key, value);
+        }
+
+        @Override
+        public V remove(Object key) {
+            return inRange(key) ? AVLMap.this.remove(key) : null;
+        }
+
+        @Override
+        public K firstKey() {
+            return key(lowest());
+        }
+
+        @Override
+        public K lastKey() {
+            return key(highest());
+        }
+
+        @Override
+        public Map.Entry<K, V> firstEntry() {
+            return export(lowest());
+        }
+
+        @Override
+        public Map.Entry<K, V> lastEntry() {
+            return export(highest());
+        }
+
+        @Override
+        public Map.Entry<K, V> pollFirstEntry() {
+            return poll(lowest());
+        }
+
+        @Override
+        public Map.Entry<K, V> pollLastEntry() {
+            return poll(highest());
+        }
+
+        @Override
+        public Map.Entry<K, V> floorEntry(K key) {
+            return export(floor(key, true));
+        }
+
+        @Override
+        public Map.Entry<K, V> ceilingEntry(K key) {
+            return export(ceiling(key, true));
+        }
+
+        @Override
+        public Map.Entry<K, V> lowerEntry(K key) {
+            return export(floor(key, false));
+        }
+
+        @Override
+        public Map.Entry<K, V> higherEntry(K key) {
+            return export(ceiling(key, false));
+        }
+
+        @Override
+        public K floorKey(K key) {
+            return keyOrNull(floor(key, true));
+        }
+
+        @Override
+        public K ceilingKey(K key) {
+            return keyOrNull(ceiling(key, true));
+        }
+
+        @Override
+        public K lowerKey(K key) {
+            return keyOrNull(floor(key, false));
+        }
+
+        @Override
+        public K higherKey(K key) {
+            return keyOrNull(ceiling(key, false));
+        }
+
+        @Override
+        public NavigableMap<K, V> descendingMap() {
+            return new View(lo, loInclusive, fromStart, hi, hiInclusive, toEnd, !descending);
+        }
+
+        @Override
+        public Set<K> keySet() {
+            return navigableKeySet();
+        }
+
+        @Override
+        public NavigableSet<K> navigableKeySet() {
+            return new KeySet<>(this);
+        }
+
+        @Override
+        public NavigableSet<K> descendingKeySet() {
+            return descendingMap().navigableKeySet();
+        }
+
+        /**
+         * 视图的子视图：取两个区间的交集，新的界必须在当前视图的范围内，参数按树的顺序给出
+         */
+        private NavigableMap<K, V> range(K lo, boolean loInclusive, boolean fromStart, K hi, boolean hiInclusive,
+                                         boolean toEnd) {
+            if (fromStart) {
+                lo = this.lo;
+                loInclusive = this.loInclusive;
+                fromStart = this.fromStart;
+            } else {
+                checkBound(lo);
+                if (!this.fromStart && compare(lo, this.lo) == 0) {
+                    loInclusive &= this.loInclusive;
+                }
+            }
+            if (toEnd) {
+                hi = this.hi;
+                hiInclusive = this.hiInclusive;
+                toEnd = this.toEnd;
+            } else {
+                checkBound(hi);
+                if (!this.toEnd && compare(hi, this.hi) == 0) {
+                    hiInclusive &= this.hiInclusive;
+                }
+            }
+            return new View(lo, loInclusive, fromStart, hi, hiInclusive, toEnd, descending);
+        }
+
+        /**
+         * 新的界可以等于当前视图不包含的界，但不能在它之外
+         */
+        private void checkBound(K key) {
+            checkKey(key);
+            if ((!fromStart && compare(key, lo) < 0) || (!toEnd && compare(key, hi) > 0)) {
+                throw new IllegalArgumentException("键超出视图的范围: " + key);
+            }
+        }
+
+        @Override
+        public NavigableMap<K, V> subMap(K fromKey, boolean fromInclusive, K toKey, boolean toInclusive) {
+            if (descending) {
+                return range(toKey, toInclusive, false, fromKey, fromInclusive, false);
+            }
+            return range(fromKey, fromInclusive, false, toKey, toInclusive, false);
+        }
+
+        @Override
+        public NavigableMap<K, V> headMap(K toKey, boolean inclusive) {
+            if (descending) {
+                return range(toKey, inclusive, false, null, true, true);
+            }
+            return range(null, true, true, toKey, inclusive, false);
+        }
+
+        @Override
+        public NavigableMap<K, V> tailMap(K fromKey, boolean inclusive) {
+            if (descending) {
+                return range(null, true, true, fromKey, inclusive, false);
+            }
+            return range(fromKey, inclusive, false, null, true, true);
+        }
+
+        @Override
+        public SortedMap<K, V> subMap(K fromKey, K toKey) {
+            return subMap(fromKey, true, toKey, false);
+        }
+
+        @Override
+        public SortedMap<K, V> headMap(K toKey) {
+            return headMap(toKey, false);
+        }
+
+        @Override
+        public SortedMap<K, V> tailMap(K fromKey) {
+            return tailMap(fromKey, true);
+        }
+    }
+
+    /**
+     * 视图中的键值对集合，size() 需要遍历区间
+     */
+    private final class EntrySet extends AbstractSet<Map.Entry<K, V>> {
+
+        private final View range;
+
+        private EntrySet(View range) {
+            this.range = range;
+        }
+
+        private boolean all() {
+            return range.fromStart && range.toEnd;
+        }
+
+        @Override
+        public Iterator<Map.Entry<K, V>> iterator() {
+            return new EntryIterator(range);
+        }
+
+        @Override
+        public int size() {
+            if (all()) {
+                return size;
+            }
+            int count = 0;
+            for (Iterator<Map.Entry<K, V>> it = iterator(); it.hasNext(); it.next()) {
+                count++;
+            }
+            return count;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return range.isEmpty();
+        }
+
+        @Override
+        public void clear() {
+            if (all()) {
+                AVLMap.this.clear();
+            } else {
+                super.clear();
+            }
+        }
+    }
+
+    /**
+     * 键的集合，所有操作都转发给对应的 NavigableMap(整棵树或视图)
+     *
+     * @param <E> 键
+     */
+    private static final class KeySet<E> extends AbstractSet<E> implements NavigableSet<E> {
+
+        private final NavigableMap<E, ?> map;
+
+        private KeySet(NavigableMap<E, ?> map) {
+            this.map = map;
+        }
+
+        private static <E> E key(Map.Entry<E, ?> entry) {
+            return null == entry ? null : entry.getKey();
+        }
+
+        @Override
+        public Iterator<E> iterator() {
+            Iterator<? extends Map.Entry<E, ?>> entries = map.entrySet().iterator();
+            return new Iterator<E>() {
+                @Override
+                public boolean hasNext() {
+                    return entries.hasNext();
+                }
+
+                @Override
+                public E next() {
+                    return entries.next().getKey();
+                }
+
+                @Override
+                public void remove() {
+                    entries.remove();
+                }
+            };
+        }
+
+        @Override
+        public Iterator<E> descendingIterator() {
+            return descendingSet().iterator();
+        }
+
+        @Override
+        public int size() {
+            return map.size();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return map.isEmpty();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return map.containsKey(o);
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            if (!map.containsKey(o)) {
+                return false;
+            }
+            map.remove(o);
+            return true;
+        }
+
+        @Override
+        public void clear() {
+            map.clear();
+        }
+
+        @Override
+        public Comparator<? super E> comparator() {
+            return map.comparator();
+        }
+
+        @Override
+        public E first() {
+            return map.firstKey();
+        }
+
+        @Override
+        public E last() {
+            return map.lastKey();
+        }
+
+        @Override
+        public E lower(E e) {
+            return map.lowerKey(e);
+        }
+
+        @Override
+        public E floor(E e) {
+            return map.floorKey(e);
+        }
+
+        @Override
+        public E ceiling(E e) {
+            return map.ceilingKey(e);
+        }
+
+        @Override
+        public E higher(E e) {
+            return map.higherKey(e);
+        }
+
+        @Override
+        public E pollFirst() {
+            return key(map.pollFirstEntry());
+        }
+
+        @Override
+        public E pollLast() {
+            return key(map.pollLastEntry());
+        }
+
+        @Override
+        public NavigableSet<E> descendingSet() {
+            return new KeySet<>(map.descendingMap());
+        }
+
+        @Override
+        public NavigableSet<E> subSet(E fromElement, boolean fromInclusive, E toElement, boolean toInclusive) {
+            return new KeySet<>(map.subMap(fromElement, fromInclusive, toElement, toInclusive));
+        }
+
+        @Override
+        public NavigableSet<E> headSet(E toElement, boolean inclusive) {
+            return new KeySet<>(map.headMap(toElement, inclusive));
+        }
+
+        @Override
+        public NavigableSet<E> tailSet(E fromElement, boolean inclusive) {
+            return new KeySet<>(map.tailMap(fromElement, inclusive));
+        }
+
+        @Override
+        public SortedSet<E> subSet(E fromElement, E toElement) {
+            return subSet(fromElement, true, toElement, false);
+        }
+
+        @Override
+        public SortedSet<E> headSet(E toElement) {
+            return headSet(toElement, false);
+        }
+
+        @Override
+        public SortedSet<E> tailSet(E fromElement) {
+            return tailSet(fromElement, true);
+        }
+    }
+
+    public static void main(String[] args) {
+        AVLMap<Integer, String> map = new AVLMap<>();
+        for (int i = 1; i <= 10; i++) {
+            map.put(i * 10, "v" + i);
+        }
+        //  差值超过 int 范围的键也能正确比较
+        map.put(Integer.MIN_VALUE, "min");
+        map.put(Integer.MAX_VALUE, "max");
+        System.out.println(map.get(50) + " " + map.floorEntry(55) + " " + map.ceilingEntry(55));
+        System.out.println(map.subMap(30, 70));
+        System.out.println(map.headMap(30) + " " + map.tailMap(90));
+        System.out.println(map.descendingMap().headMap(70) + " " + map.descendingKeySet().subSet(80, 40));
+        map.subMap(30, 70).clear();
+        System.out.println(map.size() + " " + map);
+    }
+}
@@ -0,0 +1,133 @@
+package AVL;
+
+/**
+ * IntAVL 和 MappedAVL 共用的旋转与平衡，是 {@link AVLBalancer} 在下标节点上的版本
+ * <p>
+ * 节点是一个 int 下标，0 为空节点(NIL)，它的高度必须为 0。子类只提供按下标读写 left、right、height 的方法：
+ * IntAVL 读写平行数组，MappedAVL 读写映射文件中的节点。旋转的图示见 {@link AVLBalancer}
+ */
+abstract class IndexBalancer {
+
+    abstract int left(int node);
+
+    abstract int right(int node);
+
+    abstract int height(int node);
+
+    abstract void setLeft(int node, int child);
+
+    abstract void setRight(int node, int child);
+
+    abstract void setHeight(int node, int height);
+
+    final int balanceFactor(int node) {
+        return height(left(node)) - height(right(node));
+    }
+
+    final void updateHeight(int node) {
+        setHeight(node, Math.max(height(left(node)), height(right(node))) + 1);
+    }
+
+    /**
+     * LL: 右旋
+     *
+     * @param y 节点树
+     * @return 新节点树
+     */
+    final int LL(int y) {
+        int x = left(y);
+        int t3 = right(x);
+        setRight(x, y);
+        setLeft(y, t3);
+        //  更新节点高度
+        updateHeight(y);
+        updateHeight(x);
+        return x;
+    }
+
+    /**
+     * RR: 左旋
+     *
+     * @param y 节点树
+     * @return 新节点树
+     */
+    final int RR(int y) {
+        int x = right(y);
+        int t3 = left(x);
+        setLeft(x, y);
+        setRight(y, t3);
+        //  更新节点高度
+        updateHeight(y);
+        updateHeight(x);
+        return x;
+    }
+
+    /**
+     * LR: 先x左旋 再y右旋
+     *
+     * @param y 节点树
+     * @return 新节点树
+     */
+    final int LR(int y) {
+        //  以x为节点左旋
+        int x = left(y);
+        int z = right(x);
+        int t2 = left(z);
+        setLeft(y, z);
+        setLeft(z, x);
+        setRight(x, t2);
+        //  以y为节点右旋
+        int t3 = right(z);
+        setRight(z, y);
+        setLeft(y, t3);
+        //  更新节点高度
+        updateHeight(x);
+        updateHeight(y);
+        updateHeight(z);
+        return z;
+    }
+
+    /**
+     * RL: 先x右旋 再y左旋
+     *
+     * @param y 节点树
+     * @return 新节点树
+     */
+    final int RL(int y) {
+        //  以x为节点右旋
+        int x = right(y);
+        int z = left(x);
+        int t3 = right(z);
+        setRight(y, z);
+        setRight(z, x);
+        setLeft(x, t3);
+        //  以y为节点左旋
+        int t2 = left(z);
+        setLeft(z, y);
+        setRight(y, t2);
+        //  更新节点高度
+        updateHeight(x);
+        updateHeight(y);
+        updateHeight(z);
+        return z;
+    }
+
+    /**
+     * 更新高度并在失衡时旋转
+     * 删除后子树的平衡因子可能为0，此时单旋即可，所以和0比较时带上等号
+     *
+     * @param node 节点
+     * @return 平衡后的节点
+     */
+    final int balance(int node) {
+        updateHeight(node);
+        int bf = balanceFactor(node);
+        if (bf > 1) {
+            return balanceFactor(left(node)) >= 0 ? LL(node) : LR(node);
+        }
+        if (bf < -1) {
+            return balanceFactor(right(node)) <= 0 ? RR(node) : RL(node);
+        }
+        return node;
+    }
+}
@@ -0,0 +1,313 @@
+package AVL;
+
+import java.util.Arrays;
+
+/**
+ * 基于数组节点池的 int 平衡二叉搜索树
+ * <p>
+ * 与 {@link AVL} 的平衡规则和 LL、RR、LR、RL 旋转完全一致(旋转与 MappedAVL 共用 {@link IndexBalancer})，区别在于节点的存储方式：
+ * 1.节点不再是对象，而是节点池中的一个下标，key、left、right、height 分别保存在四个平行的 int 数组中
+ * 2.下标 0 作为空节点(NIL)，它的高度恒为 0，所以求高度时不需要判空
+ * 3.删除节点后下标放入空闲链表(借用 left 数组串联)，之后的插入优先复用，稳定状态下不再分配内存
+ * <p>
+ * 每个节点只占 16 字节，没有对象头，也没有 Integer 装箱
+ */
+public class IntAVL {
+
+    /**
+     * 空节点
+     */
+    private static final int NIL = 0;
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    /**
+     * 节点数据
+     */
+    private int[] key;
+    /**
+     * 左节点下标
+     */
+    private int[] left;
+    /**
+     * 右节点下标
+     */
+    private int[] right;
+    /**
+     * 节点高度
+     */
+    private int[] height;
+
+    private int root;
+
+    private int size;
+
+    /**
+     * 空闲链表的表头，通过 left 数组串联
+     */
+    private int free;
+
+    /**
+     * 从未使用过的下一个下标
+     */
+    private int next;
+
+    /**
+     * 旋转直接读写节点池的数组，扩容后数组会被替换，所以每次都通过字段读取
+     */
+    private final IndexBalancer balancer = new IndexBalancer() {
+        @Override
+        int left(int node) {
+            return left[node];
+        }
+
+        @Override
+        int right(int node) {
+            return right[node];
+        }
+
+        @Override
+        int height(int node) {
+            return height[node];
+        }
+
+        @Override
+        void setLeft(int node, int child) {
+            left[node] = child;
+        }
+
+        @Override
+        void setRight(int node, int child) {
+            right[node] = child;
+        }
+
+        @Override
+        void setHeight(int node, int h) {
+            height[node] = h;
+        }
+    };
+
+    public IntAVL() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity 预分配的节点数
+     */
+    public IntAVL(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("容量不能小于0: " + capacity);
+        }
+        //  多出的一个位置留给NIL
+        int length = capacity + 1;
+        key = new int[length];
+        left = new int[length];
+        right = new int[length];
+        height = new int[length];
+        clear();
+    }
+
+    /**
+     * 获取平衡二叉树的大小
+     *
+     * @return 平衡二叉树的大小
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * 平衡二叉树是否为空
+     *
+     * @return 是否为空
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * 清空树，节点池的容量保留
+     */
+    public void clear() {
+        root = NIL;
+        size = 0;
+        free = NIL;
+        next = 1;
+    }
+
+    /**
+     * 获取整棵树的高度
+     *
+     * @return 高度
+     */
+    public int getHeight() {
+        return height[root];
+    }
+
+    public boolean contains(int e) {
+        int node = root;
+        while (node != NIL) {
+            int k = key[node];
+            if (e == k) {
+                return true;
+            }
+            node = e < k ? left[node] : right[node];
+        }
+        return false;
+    }
+
+    public boolean isBalance() {
+        return isBalance(root);
+    }
+
+    private boolean isBalance(int node) {
+        if (node == NIL) {
+            return true;
+        }
+        if (Math.abs(getBalanceFactor(node)) > 1) {
+            return false;
+        }
+        return isBalance(left[node]) && isBalance(right[node]);
+    }
+
+    /**
+     * 从节点池中取出一个节点，优先复用空闲链表中的节点
+     *
+     * @param e 节点数据
+     * @return 节点下标
+     */
+    private int allocate(int e) {
+        int node;
+        if (free != NIL) {
+            node = free;
+            free = left[node];
+        } else {
+            if (next == key.length) {
+                grow();
+            }
+            node = next++;
+        }
+        key[node] = e;
+        left[node] = NIL;
+        right[node] = NIL;
+        height[node] = 1;
+        return node;
+    }
+
+    /**
+     * 将节点归还到空闲链表
+     *
+     * @param node 节点下标
+     */
+    private void release(int node) {
+        left[node] = free;
+        right[node] = NIL;
+        height[node] = 0;
+        free = node;
+    }
+
+    private void grow() {
+        int length = Math.max(key.length << 1, 2);
+        key = Arrays.copyOf(key, length);
+        left = Arrays.copyOf(left, length);
+        right = Arrays.copyOf(right, length);
+        height = Arrays.copyOf(height, length);
+    }
+
+    private int getBalanceFactor(int node) {
+        return balancer.balanceFactor(node);
+    }
+
+    /**
+     * 更新高度并在失衡时旋转，见 {@link IndexBalancer#balance(int)}
+     *
+     * @param node 节点
+     * @return 平衡后的节点
+     */
+    private int balance(int node) {
+        return balancer.balance(node);
+    }
+
+    public void add(int e) {
+        root = add(root, e);
+    }
+
+    private int add(int node, int e) {
+        //  节点为空，插入元素
+        if (node == NIL) {
+            size++;
+            return allocate(e);
+        }
+        int k = key[node];
+        if (e > k) {
+            //  先递归再写回，递归过程中节点池可能扩容，不能提前取出数组引用
+            int child = add(right[node], e);
+            right[node] = child;
+        } else if (e < k) {
+            int child = add(left[node], e);
+            left[node] = child;
+        } else {
+            return node;
+        }
+        return balance(node);
+    }
+
+    public void remove(int e) {
+        root = remove(root, e);
+    }
+
+    private int remove(int node, int e) {
+        if (node == NIL) {
+            return NIL;
+        }
+        int k = key[node];
+        if (e > k) {
+            right[node] = remove(right[node], e);
+        } else if (e < k) {
+            left[node] = remove(left[node], e);
+        } else {
+            size--;
+            if (left[node] == NIL || right[node] == NIL) {
+                int child = left[node] == NIL ? right[node] : left[node];
+                release(node);
+                return child;
+            }
+            //  两个孩子时用后继节点的数据替换当前节点，再删除后继节点
+            int min = right[node];
+            while (left[min] != NIL) {
+                min = left[min];
+            }
+            key[node] = key[min];
+            right[node] = removeMin(right[node]);
+        }
+        return balance(node);
+    }
+
+    /**
+     * 删除子树中最小的节点
+     *
+     * @param node 子树
+     * @return 删除后的子树
+     */
+    private int removeMin(int node) {
+        if (left[node] == NIL) {
+            int child = right[node];
+            release(node);
+            return child;
+        }
+        left[node] = removeMin(left[node]);
+        return balance(node);
+    }
+
+    public static void main(String[] args) {
+        IntAVL avl = new IntAVL();
+        for (int i = 1; i <= 1000; i++) {
+            avl.add(i);
+        }
+        for (int i = 1; i <= 1000; i += 2) {
+            avl.remove(i);
+        }
+        System.out.println(avl.getSize() + " " + avl.getHeight() + " " + avl.isBalance());
+        System.out.println(avl.contains(2) + " " + avl.contains(3));
+    }
+}
@@ -0,0 +1,478 @@
+package AVL;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * 保存在内存映射文件中的 int 平衡二叉搜索树
+ * <p>
+ * 节点的组织方式与 {@link IntAVL} 相同，节点是一个下标而不是对象，LL、RR、LR、RL 旋转和平衡与它共用 {@link IndexBalancer}，
+ * 区别在于 key、left、right、height 不在 Java 堆中，而是写在映射到内存的文件里：
+ * 1.文件开头是 64 字节的文件头，记录魔数、版本、根节点、大小、空闲链表和下一个未使用的下标
+ * 2.之后每个节点占 16 字节，依次是 key、left、right、height，节点 i 位于 64 + 16 * i，下标 0 为 NIL，全部为 0
+ * 3.单个 MappedByteBuffer 最多 2GB，所以文件按 1GB 分段映射，节点大小整除分段大小，一个节点不会跨段
+ * 4.所有 int 固定按小端字节序读写，文件在不同字节序的机器之间可以通用
+ * <p>
+ * 树的数据不在堆中，GC 不需要扫描；重新打开文件时只需要映射，不需要重建，节点按需由操作系统从页缓存换入
+ * 每次修改结束时才写回文件头，close() 或 flush() 时把数据刷到磁盘；不保证进程崩溃时的一致性
+ * 非线程安全
+ */
+public class MappedAVL implements Closeable {
+
+    private static final int MAGIC = 0x4156_4C31;
+
+    private static final int VERSION = 1;
+
+    private static final int HEADER_BYTES = 64;
+
+    private static final int NODE_BYTES = 16;
+
+    private static final int NODE_SHIFT = 4;
+
+    /**
+     * 每段 1GB
+     */
+    private static final int SEGMENT_SHIFT = 30;
+
+    private static final long SEGMENT_BYTES = 1L << SEGMENT_SHIFT;
+
+    private static final long SEGMENT_MASK = SEGMENT_BYTES - 1;
+
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    /**
+     * 文件头中各字段的位置
+     */
+    private static final int MAGIC_OFFSET = 0;
+    private static final int VERSION_OFFSET = 4;
+    private static final int ROOT_OFFSET = 8;
+    private static final int SIZE_OFFSET = 12;
+    private static final int FREE_OFFSET = 16;
+    private static final int NEXT_OFFSET = 20;
+
+    /**
+     * 节点中各字段的位置
+     */
+    private static final int KEY = 0;
+    private static final int LEFT = 4;
+    private static final int RIGHT = 8;
+    private static final int HEIGHT = 12;
+
+    /**
+     * 空节点
+     */
+    private static final int NIL = 0;
+
+    private final FileChannel channel;
+
+    private MappedByteBuffer[] segments;
+
+    /**
+     * 文件中能容纳的节点数(包括 NIL)
+     */
+    private long capacity;
+
+    private int root;
+
+    private int size;
+
+    /**
+     * 空闲链表的表头，通过 left 串联
+     */
+    private int free;
+
+    /**
+     * 从未使用过的下一个下标
+     */
+    private int next;
+
+    /**
+     * 旋转读写映射文件中的节点
+     */
+    private final IndexBalancer balancer = new IndexBalancer() {
+        @Override
+        int left(int node) {
+            return MappedAVL.this.left(node);
+        }
+
+        @Override
+        int right(int node) {
+            return MappedAVL.this.right(node);
+        }
+
+        @Override
+        int height(int node) {
+            return MappedAVL.this.height(node);
+        }
+
+        @Override
+        void setLeft(int node, int child) {
+            MappedAVL.this.setLeft(node, child);
+        }
+
+        @Override
+        void setRight(int node, int child) {
+            MappedAVL.this.setRight(node, child);
+        }
+
+        @Override
+        void setHeight(int node, int height) {
+            set(node, HEIGHT, height);
+        }
+    };
+
+    private MappedAVL(FileChannel channel) {
+        this.channel = channel;
+        this.segments = new MappedByteBuffer[0];
+    }
+
+    /**
+     * 打开已有的文件，文件不存在时创建一棵空树
+     *
+     * @param path 文件路径
+     * @return 树
+     * @throws IOException 文件读写失败，或者文件不是 MappedAVL 的格式
+     */
+    public static MappedAVL open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        MappedAVL avl = new MappedAVL(channel);
+        try {
+            long length = channel.size();
+            if (length == 0) {
+                avl.map(DEFAULT_CAPACITY);
+                avl.segments[0].putInt(MAGIC_OFFSET, MAGIC);
+                avl.segments[0].putInt(VERSION_OFFSET, VERSION);
+                avl.clear();
+            } else {
+                if (length < HEADER_BYTES + NODE_BYTES) {
+                    throw new IOException("文件长度不正确: " + length);
+                }
+                avl.map((length - HEADER_BYTES) >>> NODE_SHIFT);
+                avl.readHeader();
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        return avl;
+    }
+
+    private void readHeader() throws IOException {
+        MappedByteBuffer header = segments[0];
+        if (header.getInt(MAGIC_OFFSET) != MAGIC) {
+            throw new IOException("不是 MappedAVL 文件");
+        }
+        if (header.getInt(VERSION_OFFSET) != VERSION) {
+            throw new IOException("不支持的版本: " + header.getInt(VERSION_OFFSET));
+        }
+        root = header.getInt(ROOT_OFFSET);
+        size = header.getInt(SIZE_OFFSET);
+        free = header.getInt(FREE_OFFSET);
+        next = header.getInt(NEXT_OFFSET);
+    }
+
+    private void writeHeader() {
+        MappedByteBuffer header = segments[0];
+        header.putInt(ROOT_OFFSET, root);
+        header.putInt(SIZE_OFFSET, size);
+        header.putInt(FREE_OFFSET, free);
+        header.putInt(NEXT_OFFSET, next);
+    }
+
+    /**
+     * 映射能容纳 nodes 个节点的文件，文件不够长时会被扩展
+     * 最后一段不满 1GB 时重新映射，旧的映射在被 GC 回收时解除
+     *
+     * @param nodes 节点数
+     */
+    private void map(long nodes) throws IOException {
+        long bytes = HEADER_BYTES + (nodes << NODE_SHIFT);
+        int count = (int) ((bytes + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+        MappedByteBuffer[] mapped = Arrays.copyOf(segments, count);
+        for (int i = 0; i < count; i++) {
+            long start = (long) i << SEGMENT_SHIFT;
+            long length = Math.min(SEGMENT_BYTES, bytes - start);
+            if (null == mapped[i] || mapped[i].capacity() < length) {
+                mapped[i] = channel.map(FileChannel.MapMode.READ_WRITE, start, length);
+                mapped[i].order(ByteOrder.LITTLE_ENDIAN);
+            }
+        }
+        segments = mapped;
+        capacity = nodes;
+    }
+
+    private MappedByteBuffer segment(int node) {
+        return segments[(int) ((HEADER_BYTES + ((long) node << NODE_SHIFT)) >>> SEGMENT_SHIFT)];
+    }
+
+    private int offset(int node) {
+        return (int) ((HEADER_BYTES + ((long) node << NODE_SHIFT)) & SEGMENT_MASK);
+    }
+
+    private int get(int node, int field) {
+        return segment(node).getInt(offset(node) + field);
+    }
+
+    private void set(int node, int field, int value) {
+        segment(node).putInt(offset(node) + field, value);
+    }
+
+    private int key(int node) {
+        return get(node, KEY);
+    }
+
+    private int left(int node) {
+        return get(node, LEFT);
+    }
+
+    private int right(int node) {
+        return get(node, RIGHT);
+    }
+
+    private int height(int node) {
+        return get(node, HEIGHT);
+    }
+
+    private void setLeft(int node, int child) {
+        set(node, LEFT, child);
+    }
+
+    private void setRight(int node, int child) {
+        set(node, RIGHT, child);
+    }
+
+    /**
+     * 获取平衡二叉树的大小
+     *
+     * @return 平衡二叉树的大小
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * 平衡二叉树是否为空
+     *
+     * @return 是否为空
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * 清空树，文件长度保留
+     */
+    public void clear() {
+        root = NIL;
+        size = 0;
+        free = NIL;
+        next = 1;
+        writeHeader();
+    }
+
+    /**
+     * 获取整棵树的高度
+     *
+     * @return 高度
+     */
+    public int getHeight() {
+        return height(root);
+    }
+
+    public boolean contains(int e) {
+        int node = root;
+        while (node != NIL) {
+            int k = key(node);
+            if (e == k) {
+                return true;
+            }
+            node = e < k ? left(node) : right(node);
+        }
+        return false;
+    }
+
+    public boolean isBalance() {
+        return isBalance(root);
+    }
+
+    private boolean isBalance(int node) {
+        if (node == NIL) {
+            return true;
+        }
+        if (Math.abs(getBalanceFactor(node)) > 1) {
+            return false;
+        }
+        return isBalance(left(node)) && isBalance(right(node));
+    }
+
+    /**
+     * 把修改刷到磁盘
+     */
+    public void flush() {
+        for (MappedByteBuffer segment : segments) {
+            segment.force();
+        }
+    }
+
+    /**
+     * 刷盘并关闭文件，之后不能再使用
+     */
+    @Override
+    public void close() throws IOException {
+        flush();
+        segments = new MappedByteBuffer[0];
+        channel.close();
+    }
+
+    /**
+     * 从空闲链表或文件末尾取出一个节点，文件容量不够时按两倍扩展
+     *
+     * @param e 节点数据
+     * @return 节点下标
+     */
+    private int allocate(int e) {
+        int node;
+        if (free != NIL) {
+            node = free;
+            free = left(node);
+        } else {
+            if (next == capacity) {
+                if (next == Integer.MAX_VALUE) {
+                    throw new IllegalStateException("节点数超过上限");
+                }
+                try {
+                    map(Math.min(capacity << 1, Integer.MAX_VALUE));
+                } catch (IOException ex) {
+                    throw new IllegalStateException("扩展文件失败", ex);
+                }
+            }
+            node = next++;
+        }
+        set(node, KEY, e);
+        setLeft(node, NIL);
+        setRight(node, NIL);
+        set(node, HEIGHT, 1);
+        return node;
+    }
+
+    /**
+     * 将节点归还到空闲链表
+     *
+     * @param node 节点下标
+     */
+    private void release(int node) {
+        setLeft(node, free);
+        setRight(node, NIL);
+        set(node, HEIGHT, 0);
+        free = node;
+    }
+
+    private int getBalanceFactor(int node) {
+        return balancer.balanceFactor(node);
+    }
+
+    /**
+     * 更新高度并在失衡时旋转，见 {@link IndexBalancer#balance(int)}
+     *
+     * @param node 节点
+     * @return 平衡后的节点
+     */
+    private int balance(int node) {
+        return balancer.balance(node);
+    }
+
+    public void add(int e) {
+        root = add(root, e);
+        writeHeader();
+    }
+
+    private int add(int node, int e) {
+        //  节点为空，插入元素
+        if (node == NIL) {
+            size++;
+            return allocate(e);
+        }
+        int k = key(node);
+        if (e > k) {
+            setRight(node, add(right(node), e));
+        } else if (e < k) {
+            setLeft(node, add(left(node), e));
+        } else {
+            return node;
+        }
+        return balance(node);
+    }
+
+    public void remove(int e) {
+        root = remove(root, e);
+        writeHeader();
+    }
+
+    private int remove(int node, int e) {
+        if (node == NIL) {
+            return NIL;
+        }
+        int k = key(node);
+        if (e > k) {
+            setRight(node, remove(right(node), e));
+        } else if (e < k) {
+            setLeft(node, remove(left(node), e));
+        } else {
+            size--;
+            if (left(node) == NIL || right(node) == NIL) {
+                int child = left(node) == NIL ? right(node) : left(node);
+                release(node);
+                return child;
+            }
+            //  两个孩子时用后继节点的数据替换当前节点，再删除后继节点
+            int min = right(node);
+            while (left(min) != NIL) {
+                min = left(min);
+            }
+            set(node, KEY, key(min));
+            setRight(node, removeMin(right(node)));
+        }
+        return balance(node);
+    }
+
+    /**
+     * 删除子树中最小的节点
+     *
+     * @param node 子树
+     * @return 删除后的子树
+     */
+    private int removeMin(int node) {
+        if (left(node) == NIL) {
+            int child = right(node);
+            release(node);
+            return child;
+        }
+        setLeft(node, removeMin(left(node)));
+        return balance(node);
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path path = args.length > 0 ? Path.of(args[0]) : Path.of(System.getProperty("java.io.tmpdir"), "avl.dat");
+        int n = 1_000_000;
+        try (MappedAVL avl = open(path)) {
+            avl.clear();
+            long start = System.nanoTime();
+            for (int i = 0; i < n; i++) {
+                avl.add(i);
+            }
+            System.out.printf("构建 %d 个节点: %d ms%n", n, (System.nanoTime() - start) / 1_000_000);
+        }
+        long start = System.nanoTime();
+        try (MappedAVL avl = open(path)) {
+            System.out.printf("重新打开: %d ms%n", (System.nanoTime() - start) / 1_000_000);
+            System.out.println(avl.getSize() + " " + avl.getHeight() + " " + avl.contains(n / 2) + " " + avl.contains(n));
+        }
+    }
+}
@@ -1,15 +1,28 @@
 package BinarySearchTree;
 
 import BinaryTree.TreeNode;
+import Common.EytzingerIndex;
+import Common.LookupAccelerator;
+import Common.SortedKeys;
+import Common.TreeMetrics;
 
-import java.util.LinkedList;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
 import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
 
 /**
  * 二叉搜索树： 对于树中的每个节点X，它的左子树中所有项的值都小于X中的项，而它的右子树中所有项的值都大于X中的项
  * 有时也称二叉排序树 Binary Sort Tree，但是他们的定义是一样的
  * <p>
  * 平均深度 log N
+ * <p>
+ * 删除有直接删除和惰性删除两种模式，见 {@link #BinarySearchTree(double, Executor)}
  *
  * @author asus
  */
@@ -17,44 +30,204 @@ public class BinarySearchTree {
 
     private TreeNode node;
 
+    /**
+     * 操作统计，为 null 时不统计
+     */
+    private TreeMetrics metrics;
+
+    /**
+     * 惰性删除时，节点数少于这个值不整理
+     */
+    private static final int MIN_COMPACTION_NODES = 64;
+
+    /**
+     * 树中的节点数，包括墓碑
+     */
+    private int nodes;
+
+    /**
+     * 标记为删除但还留在树中的节点数
+     */
+    private int tombstones;
+
+    /**
+     * 墓碑占节点数的比例达到这个值时整理，为0时使用直接删除
+     */
+    private final double compactionThreshold;
+
+    /**
+     * 执行整理的线程池，为 null 时在当前线程整理
+     */
+    private final Executor compactor;
+
+    /**
+     * 正在后台进行的整理，只由使用树的线程读写
+     */
+    private Compaction running;
+
+    /**
+     * 整理开始之后的修改日志，每一项为 (key << 1) | 是否删除，换上新树时重放
+     */
+    private long[] log = new long[16];
+
+    private int logSize;
+
+    /**
+     * forEachInRange 复用的游标，回调中再次调用 forEachInRange 时这个游标正在使用，改为新建一个
+     */
+    private RangeCursor scanCursor;
+
+    private boolean scanning;
+
+    /**
+     * 直接删除模式
+     */
+    public BinarySearchTree() {
+        this(0, null);
+    }
+
+    /**
+     * 惰性删除模式：remove 只沿路径找到节点并标记为墓碑，O(depth)，不修改树的结构；
+     * contains、findMin、findMax、levelOrder 等都跳过墓碑，之后再插入相同的数据时直接复活节点
+     * <p>
+     * 墓碑的比例达到 compactionThreshold 时整理：使用树的线程把存活的数据中序复制到数组中，
+     * 由 compactor 在后台构建一棵完全平衡的新树；构建期间的修改照常作用在旧树上并记录到日志，
+     * 之后的某次修改(insert、insertAll、remove)发现新树已经构建完成，就换上新树并重放日志。compactor 为 null 时在当前线程直接重建。
+     * 旧树在整理期间一直是最新的，所以 contains 等只读操作直接读旧树，不换树也不修改任何状态
+     * <p>
+     * 树本身仍然不是线程安全的，后台线程只读取复制出来的数组
+     *
+     * @param compactionThreshold 触发整理的墓碑比例，在 (0, 1] 之间，为0时使用直接删除
+     * @param compactor           执行整理的线程池，可以为 null
+     */
+    public BinarySearchTree(double compactionThreshold, Executor compactor) {
+        if (compactionThreshold < 0 || compactionThreshold > 1) {
+            throw new IllegalArgumentException("墓碑比例必须在0到1之间: " + compactionThreshold);
+        }
+        this.compactionThreshold = compactionThreshold;
+        this.compactor = compactor;
+    }
+
+    /**
+     * 由有序数组批量构建二叉搜索树
+     * 逐个插入有序数据会退化成深度为 N-1 的链表，这里每次取中间的元素作为根，左右两半递归构建，
+     * 得到一棵完全平衡的树，时间复杂度 O(n)
+     * 数组无序时先并行排序，重复的元素只保留一个，传入的数组不会被修改
+     *
+     * @param sorted 有序数组
+     * @return 二叉搜索树
+     */
+    public static BinarySearchTree bulkLoad(int[] sorted) {
+        int[] keys = SortedKeys.sortedDistinct(sorted);
+        BinarySearchTree bst = new BinarySearchTree();
+        bst.node = bst.build(keys, 0, keys.length - 1);
+        bst.nodes = keys.length;
+        return bst;
+    }
+
+    /**
+     * 由有序的迭代器批量构建二叉搜索树
+     *
+     * @param iterator 迭代器
+     * @return 二叉搜索树
+     */
+    public static BinarySearchTree bulkLoad(Iterator<Integer> iterator) {
+        return bulkLoad(SortedKeys.toArray(iterator));
+    }
+
+    /**
+     * 以 keys[lo..hi] 构建子树
+     *
+     * @param keys 有序数组
+     * @param lo   起始下标(包含)
+     * @param hi   结束下标(包含)
+     * @return 子树
+     */
+    private TreeNode build(int[] keys, int lo, int hi) {
+        if (lo > hi) {
+            return null;
+        }
+        int mid = (lo + hi) >>> 1;
+        TreeNode node = new TreeNode(keys[mid]);
+        node.left = build(keys, lo, mid - 1);
+        node.right = build(keys, mid + 1, hi);
+        return node;
+    }
+
+    /**
+     * 开启或关闭(传入 null) insert、remove、contains 的统计，多棵树可以共用一个 TreeMetrics
+     *
+     * @param metrics 统计
+     */
+    public void setMetrics(TreeMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public TreeMetrics getMetrics() {
+        return metrics;
+    }
+
     public void makeEmpty() {
         node = null;
+        nodes = 0;
+        tombstones = 0;
+        running = null;
+        logSize = 0;
     }
 
     public boolean isEmpty() {
-        return null == node;
+        return nodes == tombstones;
+    }
+
+    /**
+     * @return 数据个数，不包括墓碑
+     */
+    public int getSize() {
+        return nodes - tombstones;
+    }
+
+    /**
+     * @return 墓碑个数，直接删除模式下总是0
+     */
+    public int getTombstones() {
+        return tombstones;
     }
 
     public boolean contains(Integer ele) {
-        return contains(ele, node);
+        TreeNode found = getNode(ele);
+        return null != found && !found.deleted;
     }
 
     /**
-     * 1.利用二叉搜索树节点与子树之间的大小关系进行搜索(大于查右子树，小于查左子树，等于返回true，null返回false)
-     * 2.采用递归方式进行深度查询
+     * 1.利用二叉搜索树节点与子树之间的大小关系进行搜索(大于查右子树，小于查左子树，等于返回节点，null返回null)
+     * 2.采用循环方式向下查询，不会因为树太深而栈溢出，也不会分配内存
      *
-     * @param ele  输入数据
-     * @param node 父节点
-     * @return 是否存在
+     * @param ele 输入数据
+     * @return 数据所在的节点
      */
-    private boolean contains(Integer ele, TreeNode node) {
-        //  如果节点为空，则不包含
-        if (isEmpty()) {
-            return false;
+    private TreeNode getNode(Integer ele) {
+        int e = ele;
+        TreeNode current = node;
+        int visited = 0;
+        while (null != current) {
+            visited++;
+            int element = current.element;
+            //  如果相等，则说明输入数据等于当前二叉树中的数据
+            if (e == element) {
+                break;
+            }
+            current = e < element ? current.left : current.right;
         }
-        int result = node.compareTo(ele);
-
-        //  如果等于0，则说明输入数据等于当前二叉树中的数据
-        if (result == 0) {
-            return true;
-        } else if (result > 0) {
-            return contains(ele, node.right);
-        } else {
-            return contains(ele, node.left);
+        if (null != metrics) {
+            metrics.record(visited, visited, visited);
         }
+        return current;
     }
 
     public Integer findMin() {
+        if (tombstones > 0) {
+            return findLive(true).element;
+        }
         return findMin(node).element;
     }
 
@@ -65,131 +238,295 @@ public class BinarySearchTree {
      * @return 子节点
      */
     private TreeNode findMin(TreeNode node) {
-        if (isEmpty()) {
+        if (null == node) {
             throw new NullPointerException();
         }
-        if (node.left == null) {
-            return node;
+        while (null != node.left) {
+            node = node.left;
         }
-        return findMin(node.left);
+        return node;
     }
 
     public Integer findMax() {
+        if (tombstones > 0) {
+            return findLive(false).element;
+        }
         return findMax(node).element;
     }
 
+    /**
+     * 有墓碑时最左(最右)的节点可能已经删除，按中序(逆中序)遍历找到第一个存活的节点
+     *
+     * @param ascending true 找最小，false 找最大
+     * @return 节点
+     */
+    private TreeNode findLive(boolean ascending) {
+        ArrayDeque<TreeNode> stack = new ArrayDeque<>();
+        TreeNode current = node;
+        while (null != current || !stack.isEmpty()) {
+            while (null != current) {
+                stack.push(current);
+                current = ascending ? current.left : current.right;
+            }
+            current = stack.pop();
+            if (!current.deleted) {
+                return current;
+            }
+            current = ascending ? current.right : current.left;
+        }
+        throw new NullPointerException();
+    }
+
+    /**
+     * 寻找最大的数据也就是查找最右边的子树
+     *
+     * @param node 父节点
+     * @return 子节点
+     */
     private TreeNode findMax(TreeNode node) {
-        if (isEmpty()) {
+        if (null == node) {
             throw new NullPointerException();
         }
-        if (node.right == null) {
-            return node;
+        while (null != node.right) {
+            node = node.right;
         }
-        return findMin(node.right);
+        return node;
     }
 
+    /**
+     * 插入数据，循环向下找到合适的空位置，直接连接到父节点上
+     *
+     * @param ele 数据
+     */
     public void insert(Integer ele) {
-        node = insert(ele, node);
+        applyCompaction();
+        log(ele, false);
+        insertKey(ele);
     }
 
-    private TreeNode insert(Integer ele, TreeNode node) {
-        //  用于插入
+    private void insertKey(Integer ele) {
         if (null == node) {
-            return new TreeNode(ele);
+            node = new TreeNode(ele);
+            nodes++;
+            record(0, 0, 1);
+            return;
         }
+        int e = ele;
+        TreeNode current = node;
+        int visited = 0;
+        while (true) {
+            visited++;
+            int element = current.element;
+            if (e < element) {
+                if (null == current.left) {
+                    current.left = new TreeNode(ele);
+                    break;
+                }
+                current = current.left;
+            } else if (e > element) {
+                if (null == current.right) {
+                    current.right = new TreeNode(ele);
+                    break;
+                }
+                current = current.right;
+            } else {
+                //  已经存在，是墓碑时复活
+                if (current.deleted) {
+                    current.deleted = false;
+                    tombstones--;
+                }
+                record(visited, visited, visited);
+                return;
+            }
+        }
+        nodes++;
+        //  新节点的深度比最后访问的节点多1
+        record(visited, visited, visited + 1);
+    }
 
-        //  判断元素与当前节点的大小
-        int result = node.element.compareTo(ele);
-
-        //  这里需要重新赋值时因为当找到适合的空节点进行插入后，我们的数据需要被重新赋值到上一个父节点
-        if (result < 0) {
-            node.right = insert(ele, node.right);
-        } else if (result > 0) {
-            node.left = insert(ele, node.left);
+    private void record(int comparisons, int visited, int depth) {
+        if (null != metrics) {
+            metrics.record(comparisons, visited, depth);
         }
-        return node;
     }
 
     /**
-     * 删除节点有两种方式：
-     * 1.惰性删除：不对节点进行删除，只是在节点上增加一个删除的标识，适用于少量的删除
-     * 2.直接删除：删除节点，但是删除节点效率不高，因为可能要重新排布树结构
-     * <p>
-     * 删除节点有三种情况：
-     * 1.当前节点没有子节点       直接删除
-     * 2.当前节点只有一个子节点    删除后直接对子节点移动
-     * 3.当前节点有两个子节点
+     * 批量插入，整批数据只从根向下走一次：
+     * 在每个节点用二分查找把这一批数据分成小于和大于节点的两段，分别交给左右子树，等于节点的跳过；
+     * 走到空位置时剩下的一段直接构建成完全平衡的子树挂上去。用显式栈代替递归，退化的树也不会栈溢出
+     * 数组无序时先排序，重复的元素只保留一个，传入的数组不会被修改
      *
-     * @param ele  数据
-     * @param node 父节点
-     * @return 删除后的节点
-     *//*
-    private TreeNode remove(Integer ele, TreeNode node) {
-        try {
-            TreeNode child = getNode(ele, node);
-
-            //  找到该子节点的父节点
-            TreeNode parentNode = getParentNode(child, node);
-
-            //  第一种情况，没有任何子节点，直接删除
-            if (null == child.left && null == child.right) {
-                //  判断该子节点在父节点的哪一边
-                if (parentNode.left == child) {
-                    //  将原来该子节点的位置置空
-                    parentNode.left = null;
+     * @param sortedBatch 有序的一批数据
+     */
+    public void insertAll(int[] sortedBatch) {
+        int[] keys = SortedKeys.sortedDistinct(sortedBatch);
+        if (keys.length == 0) {
+            return;
+        }
+        applyCompaction();
+        for (int i = 0; i < keys.length && null != running; i++) {
+            log(keys[i], false);
+        }
+        if (null == node) {
+            node = build(keys, 0, keys.length - 1);
+            nodes += keys.length;
+            return;
+        }
+        BatchStack stack = new BatchStack();
+        stack.push(node, 0, keys.length - 1);
+        while (!stack.isEmpty()) {
+            TreeNode current = stack.node();
+            int lo = stack.lo();
+            int hi = stack.hi();
+            stack.pop();
+            int element = current.element;
+            int split = SortedKeys.lowerBound(keys, lo, hi, element);
+            int next = split;
+            if (split <= hi && keys[split] == element) {
+                next++;
+                if (current.deleted) {
+                    current.deleted = false;
+                    tombstones--;
+                }
+            }
+            if (lo < split) {
+                if (null == current.left) {
+                    current.left = build(keys, lo, split - 1);
+                    nodes += split - lo;
                 } else {
-                    parentNode.right = null;
+                    stack.push(current.left, lo, split - 1);
                 }
             }
-
-            //  第二种情况，有一个子节点，建立父节点与孙节点的关系
-            if ((null == child.left && null != child.right)
-                    || (null == child.right && null != child.left)) {
-                //  判断该子节点在父节点的哪一边
-                if (parentNode.left == child) {
-                    //  将原来该子节点的位置置空
-                    parentNode.left = null;
+            if (next <= hi) {
+                if (null == current.right) {
+                    current.right = build(keys, next, hi);
+                    nodes += hi - next + 1;
                 } else {
-                    parentNode.right = null;
+                    stack.push(current.right, next, hi);
                 }
             }
-        } catch (Exception e) {
-            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 批量查找，和 insertAll 一样在每个节点把这一批数据分成两段，每个节点最多访问一次
+     *
+     * @param sortedBatch 升序的一批数据，可以有重复
+     * @param out         out[i] 为 sortedBatch[i] 是否存在，长度不能小于 sortedBatch
+     */
+    public void containsAll(int[] sortedBatch, boolean[] out) {
+        SortedKeys.checkBatch(sortedBatch, out);
+        Arrays.fill(out, 0, sortedBatch.length, false);
+        if (null == node || sortedBatch.length == 0) {
+            return;
+        }
+        BatchStack stack = new BatchStack();
+        stack.push(node, 0, sortedBatch.length - 1);
+        while (!stack.isEmpty()) {
+            TreeNode current = stack.node();
+            int lo = stack.lo();
+            int hi = stack.hi();
+            stack.pop();
+            int element = current.element;
+            int split = SortedKeys.lowerBound(sortedBatch, lo, hi, element);
+            int next = split;
+            while (next <= hi && sortedBatch[next] == element) {
+                out[next++] = !current.deleted;
+            }
+            if (lo < split && null != current.left) {
+                stack.push(current.left, lo, split - 1);
+            }
+            if (next <= hi && null != current.right) {
+                stack.push(current.right, next, hi);
+            }
+        }
+    }
+
+    /**
+     * 批量操作的栈，每一项是一个节点和交给它的数据区间 [lo, hi]，用平行数组保存，不为每一项创建对象
+     */
+    private static final class BatchStack {
+
+        private TreeNode[] nodes = new TreeNode[16];
+
+        private int[] bounds = new int[32];
+
+        private int size;
+
+        void push(TreeNode node, int lo, int hi) {
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, size << 1);
+                bounds = Arrays.copyOf(bounds, size << 2);
+            }
+            nodes[size] = node;
+            bounds[size << 1] = lo;
+            bounds[(size << 1) + 1] = hi;
+            size++;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        TreeNode node() {
+            return nodes[size - 1];
+        }
+
+        int lo() {
+            return bounds[(size - 1) << 1];
         }
 
-    }*/
+        int hi() {
+            return bounds[((size - 1) << 1) + 1];
+        }
+
+        void pop() {
+            nodes[--size] = null;
+        }
+    }
+
     public void removeMinNode() {
+        if (compactionThreshold > 0) {
+            remove(findMin());
+            return;
+        }
         node = removeMinNode(node);
+        nodes--;
     }
 
     /**
      * 删除给定节点中最小的节点
-     * 实现方式与删除最大节点有一点点不同，但是意思差不多
-     * 1.如果左节点右节点都为空，那么直接返回null，父节点会将上个节点置为null
-     * 2.如果有右节点，那么返回右节点，父节点连接剩余节点
+     * 1.一直向左走并记录父节点，直到没有左孩子
+     * 2.最小节点没有左孩子，用它的右孩子(可能为null)替换它在父节点中的位置
+     * 3.如果最小节点就是根节点，那么它的右孩子成为新的根节点
      *
      * @param node 根节点
-     * @return 最小的节点
+     * @return 删除后的根节点
      */
     private TreeNode removeMinNode(TreeNode node) {
-        //  1.递归结束条件
-        if (node.left == null) {
-            //  2.判断当前节点是否拥有右节点
-            if (node.right == null) {
-                //  3.叶子节点只需要返回null，这样使得上个节点与之连接
-                return null;
-            } else {
-                //  4.当前节点拥有右节点，则将右节点与上个节点连接
-                return node.right;
-            }
+        if (null == node) {
+            throw new NullPointerException();
         }
-
-        node.left = removeMinNode(node.left);
+        TreeNode parent = null;
+        TreeNode min = node;
+        while (null != min.left) {
+            parent = min;
+            min = min.left;
+        }
+        if (null == parent) {
+            return min.right;
+        }
+        parent.left = min.right;
         return node;
     }
 
     public void removeMaxNode() {
+        if (compactionThreshold > 0) {
+            remove(findMax());
+            return;
+        }
         node = removeMaxNode(node);
+        nodes--;
     }
 
     /**
@@ -199,74 +536,410 @@ public class BinarySearchTree {
      * 1.此节点有左子树
      * 2.此节点为叶子节点(此节点没有左子树)
      * 不管有没有左子树，我都取出左子树，如果左子树为空我取出的是null，并不影响之后的代码逻辑，因为如果左子树本来就为空，那么返回null没有问题
-     * 比较关键的就是递归的时候要返回给父级的节点
-     * 最后的return node非常关键，如果没有到递归结束条件，那么我继续查找，我返回当前的深度为1的节点
+     * 用取出的左子树替换最大节点在父节点中的位置
      *
      * @param node 根节点
-     * @return 最大的节点
+     * @return 删除后的根节点
      */
     private TreeNode removeMaxNode(TreeNode node) {
-        //  1.递归结束条件
-        if (node.right == null) {
-            //  2.获取node的左子树，即使为null也不影响逻辑
-            TreeNode left = node.left;
-            //  3.将node的左子树置空
-            node.left = null;
-            //  4.返回左子树值
+        if (null == node) {
+            throw new NullPointerException();
+        }
+        TreeNode parent = null;
+        TreeNode max = node;
+        while (null != max.right) {
+            parent = max;
+            max = max.right;
+        }
+        //  获取max的左子树，即使为null也不影响逻辑
+        TreeNode left = max.left;
+        max.left = null;
+        if (null == parent) {
             return left;
         }
-
-        node.right = removeMaxNode(node.right);
+        parent.right = left;
         return node;
     }
 
-    public void remove(Integer e) {
-        node = remove(node, e);
-    }
-
     /**
-     * 删除节点有3种情况：
+     * 删除节点有两种方式：
+     * 1.惰性删除：不对节点进行删除，只是在节点上增加一个删除的标识，适用于少量的删除
+     * 2.直接删除：删除节点，但是删除节点效率不高，因为可能要重新排布树结构
+     * <p>
+     * 惰性删除模式下只标记墓碑，见 {@link #BinarySearchTree(double, Executor)}
+     * 直接删除时，查找时同时记录父节点，删除节点有4种情况：
      * 1.删除的节点只有左孩子，将删除节点的父节点的删除节点的位置设置为删除节点的左孩子
      * 2.删除的节点只有右孩子，将删除节点的父节点的删除节点的位置设置为删除节点的右孩子
      * 3.删除的节点有两个孩子（Hibbard Deletion），寻找后继节点，删除节点的右节点的最小左孩子设置为删除节点的位置
      * 也可以查找前驱节点，也就是删除节点的左节点的最大节点
      * 4.删除的节点没有孩子
      *
-     * @param node
-     * @param e
-     * @return
+     * @param e 数据
      */
-    private TreeNode remove(TreeNode node, Integer e) {
-        //  先找到要删除的节点
-        if (node.element.equals(e)) {
-            if (node.right == null) {
-                //  左孩子是否为空不需要判断，为空直接为null也不影响逻辑
-                //  只有左孩子的情况
-                return node.left;
+    public void remove(Integer e) {
+        applyCompaction();
+        if (compactionThreshold > 0) {
+            log(e, true);
+            markDeleted(e);
+            maybeCompact();
+            return;
+        }
+        int key = e;
+        //  先找到要删除的节点和它的父节点
+        TreeNode parent = null;
+        TreeNode current = node;
+        int comparisons = 0;
+        while (null != current) {
+            comparisons++;
+            int element = current.element;
+            if (key == element) {
+                break;
             }
+            parent = current;
+            current = key < element ? current.left : current.right;
+        }
+        if (null == current) {
+            record(comparisons, comparisons, comparisons);
+            return;
+        }
+        //  查找后继节点时访问的节点也计入
+        int visited = comparisons;
 
-            if (node.left == null) {
-                return node.right;
+        TreeNode replacement;
+        if (null == current.right) {
+            //  左孩子是否为空不需要判断，为空直接为null也不影响逻辑
+            replacement = current.left;
+        } else if (null == current.left) {
+            replacement = current.right;
+        } else {
+            //  查找当前节点右节点的最小节点 --- 后继节点
+            TreeNode successorParent = current;
+            TreeNode successor = current.right;
+            visited++;
+            while (null != successor.left) {
+                successorParent = successor;
+                successor = successor.left;
+                visited++;
             }
+            //  删除后继节点的位置，后继节点连接删除节点的左右子节点
+            if (successorParent != current) {
+                successorParent.left = successor.right;
+                successor.right = current.right;
+            }
+            successor.left = current.left;
+            replacement = successor;
+        }
 
-            //  查找当前节点右节点的最小节点 --- 后继节点
-            TreeNode min = findMin(node.right);
-            //  后继节点连接删除节点的左右子节点
-            min.left = node.left;
-            //  删除后继节点的位置
-            min.right = removeMinNode(node.right);
-            //  返回后继节点
-            return min;
+        //  用替换节点连接父节点
+        if (null == parent) {
+            node = replacement;
+        } else if (parent.left == current) {
+            parent.left = replacement;
+        } else {
+            parent.right = replacement;
+        }
+        nodes--;
+        record(comparisons, visited, comparisons);
+    }
+
+    /**
+     * 惰性删除：找到节点后只做标记
+     *
+     * @param e 数据
+     */
+    private void markDeleted(int e) {
+        TreeNode current = node;
+        int visited = 0;
+        while (null != current) {
+            visited++;
+            int element = current.element;
+            if (e == element) {
+                if (!current.deleted) {
+                    current.deleted = true;
+                    tombstones++;
+                }
+                break;
+            }
+            current = e < element ? current.left : current.right;
         }
+        record(visited, visited, visited);
+    }
 
+    /**
+     * 没有正在进行的整理时不需要记录
+     */
+    private void log(int key, boolean deleted) {
+        if (null == running) {
+            return;
+        }
+        if (logSize == log.length) {
+            log = Arrays.copyOf(log, logSize << 1);
+        }
+        log[logSize++] = ((long) key << 1) | (deleted ? 1 : 0);
+        //  整理期间的修改比新树还多，重放的代价已经超过整理的收益，放弃这次整理
+        if (logSize > running.keys.length) {
+            running = null;
+            logSize = 0;
+        }
+    }
 
-        //  分情况进行递归
-        if (node.element.compareTo(e) > 0) {
-            node.left = remove(node.left, e);
-        } else if (node.element.compareTo(e) < 0) {
-            node.right = remove(node.right, e);
+    private void maybeCompact() {
+        if (compactionThreshold > 0 && null == running && nodes >= MIN_COMPACTION_NODES
+                && tombstones >= compactionThreshold * nodes) {
+            startCompaction();
+        }
+    }
+
+    /**
+     * 立即在当前线程整理：去掉所有墓碑，重建为完全平衡的树，正在后台进行的整理会被放弃
+     */
+    public void compact() {
+        running = null;
+        logSize = 0;
+        int[] keys = toSortedArray();
+        node = build(keys, 0, keys.length - 1);
+        nodes = keys.length;
+        tombstones = 0;
+    }
+
+    private void startCompaction() {
+        if (null == compactor) {
+            compact();
+            return;
+        }
+        Compaction compaction = new Compaction(toSortedArray());
+        running = compaction;
+        logSize = 0;
+        compactor.execute(() -> compaction.root = build(compaction.keys, 0, compaction.keys.length - 1));
+    }
+
+    /**
+     * 后台的新树构建完成时换上新树，并按顺序重放整理开始之后的修改
+     * 这些修改在作用于旧树时已经统计过，重放期间暂时去掉 metrics，避免重复计数
+     */
+    private void applyCompaction() {
+        Compaction compaction = running;
+        if (null == compaction) {
+            return;
+        }
+        TreeNode root = compaction.root;
+        if (null == root && compaction.keys.length > 0) {
+            return;
+        }
+        running = null;
+        node = root;
+        nodes = compaction.keys.length;
+        tombstones = 0;
+        int size = logSize;
+        logSize = 0;
+        TreeMetrics recording = metrics;
+        metrics = null;
+        try {
+            for (int i = 0; i < size; i++) {
+                long entry = log[i];
+                int key = (int) (entry >> 1);
+                if ((entry & 1) == 0) {
+                    insertKey(key);
+                } else {
+                    markDeleted(key);
+                }
+            }
+        } finally {
+            metrics = recording;
+        }
+        maybeCompact();
+    }
+
+    /**
+     * 一次后台整理，keys 是整理开始时存活的数据，root 由后台线程写入，volatile 保证读到完整的树
+     */
+    private static final class Compaction {
+
+        private final int[] keys;
+
+        private volatile TreeNode root;
+
+        private Compaction(int[] keys) {
+            this.keys = keys;
+        }
+    }
+
+    /**
+     * 冻结为只读的 Eytzinger 索引，之后对树的修改不会反映到索引中
+     *
+     * @return 索引
+     */
+    public EytzingerIndex freeze() {
+        return EytzingerIndex.of(toSortedArray());
+    }
+
+    /**
+     * 在树外面包装热点缓存和计数布隆过滤器，之后对树的修改需要通过返回的加速器进行
+     *
+     * @param cacheCapacity 热点缓存的键数
+     * @param expectedKeys  预计树中最多的键数
+     * @return 加速器
+     */
+    public LookupAccelerator accelerate(int cacheCapacity, int expectedKeys) {
+        return new LookupAccelerator(this::contains, this::insert, this::remove, toSortedArray(), cacheCapacity,
+                expectedKeys);
+    }
+
+    /**
+     * 中序遍历得到有序数组，用显式栈代替递归，退化成链表的树也不会栈溢出
+     *
+     * @return 有序数组
+     */
+    private int[] toSortedArray() {
+        int[] keys = new int[16];
+        int count = 0;
+        ArrayDeque<TreeNode> stack = new ArrayDeque<>();
+        TreeNode current = node;
+        while (null != current || !stack.isEmpty()) {
+            while (null != current) {
+                stack.push(current);
+                current = current.left;
+            }
+            current = stack.pop();
+            if (!current.deleted) {
+                if (count == keys.length) {
+                    keys = Arrays.copyOf(keys, count << 1);
+                }
+                keys[count++] = current.element;
+            }
+            current = current.right;
+        }
+        return Arrays.copyOf(keys, count);
+    }
+
+    /**
+     * 按升序对 [lo, hi] 中的每个数据执行 action，跳过墓碑
+     * 使用树中缓存的游标，稳定状态下不分配内存；树可能退化成很深的链表，所以不使用递归
+     *
+     * @param lo     下界(包含)
+     * @param hi     上界(包含)
+     * @param action 操作
+     */
+    public void forEachInRange(int lo, int hi, IntConsumer action) {
+        if (scanning) {
+            RangeCursor cursor = new RangeCursor().reset(lo, hi);
+            while (cursor.hasNext()) {
+                action.accept(cursor.nextInt());
+            }
+            return;
+        }
+        if (null == scanCursor) {
+            scanCursor = new RangeCursor();
+        }
+        RangeCursor cursor = scanCursor.reset(lo, hi);
+        scanning = true;
+        try {
+            while (cursor.hasNext()) {
+                action.accept(cursor.nextInt());
+            }
+        } finally {
+            cursor.clear();
+            scanning = false;
+        }
+    }
+
+    /**
+     * @return 一个可以反复使用的区间游标，先调用 {@link RangeCursor#reset(int, int)} 再遍历
+     */
+    public RangeCursor rangeCursor() {
+        return new RangeCursor();
+    }
+
+    /**
+     * 可以反复使用的区间游标
+     * <p>
+     * 栈是预先分配的节点数组，树的高度没有记录，栈不够时加倍，之后重复扫描不再分配内存。
+     * reset 从根向下定位到第一个 >= lo 的数据，比 lo 小的节点不入栈(跳过它们的左子树)；
+     * 之后每次弹出一个节点，把它右子树的左链入栈，遇到大于 hi 的数据时结束，O(depth + k)。栈中的节点数不超过树高
+     * <p>
+     * 遍历期间不能修改树
+     */
+    public final class RangeCursor implements PrimitiveIterator.OfInt {
+
+        private TreeNode[] stack = new TreeNode[16];
+
+        private int depth;
+
+        private int hi;
+
+        private RangeCursor() {
+        }
+
+        /**
+         * 定位到 [lo, hi] 的第一个数据
+         *
+         * @param lo 下界(包含)
+         * @param hi 上界(包含)
+         * @return 游标本身
+         */
+        public RangeCursor reset(int lo, int hi) {
+            clear();
+            this.hi = hi;
+            TreeNode current = node;
+            while (null != current) {
+                if (current.element < lo) {
+                    current = current.right;
+                } else {
+                    push(current);
+                    current = current.left;
+                }
+            }
+            skipTombstones();
+            return this;
+        }
+
+        private void push(TreeNode treeNode) {
+            if (depth == stack.length) {
+                stack = Arrays.copyOf(stack, depth << 1);
+            }
+            stack[depth++] = treeNode;
+        }
+
+        private TreeNode pop() {
+            TreeNode treeNode = stack[--depth];
+            stack[depth] = null;
+            for (TreeNode child = treeNode.right; null != child; child = child.left) {
+                push(child);
+            }
+            return treeNode;
+        }
+
+        /**
+         * 保证栈顶是存活的节点，栈顶已经大于 hi 时遍历结束，不再继续跳过
+         */
+        private void skipTombstones() {
+            while (depth > 0 && stack[depth - 1].deleted && stack[depth - 1].element <= hi) {
+                pop();
+            }
+        }
+
+        /**
+         * 释放对节点的引用
+         */
+        private void clear() {
+            Arrays.fill(stack, 0, depth, null);
+            depth = 0;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return depth > 0 && stack[depth - 1].element <= hi;
+        }
+
+        @Override
+        public int nextInt() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            int element = pop().element;
+            skipTombstones();
+            return element;
         }
-        return node;
     }
 
     /**
@@ -276,7 +949,10 @@ public class BinarySearchTree {
      * 直到取出队列中所有的节点
      */
     public void levelOrder() {
-        Queue<TreeNode> queue = new LinkedList<>();
+        if (null == node) {
+            return;
+        }
+        Queue<TreeNode> queue = new ArrayDeque<>();
         queue.add(node);
 
         while (!queue.isEmpty()) {
@@ -289,10 +965,97 @@ public class BinarySearchTree {
             if (node.right != null) {
                 queue.add(node.right);
             }
-            System.out.println(node.element);
+            if (!node.deleted) {
+                System.out.println(node.element);
+            }
+        }
+    }
+
+    /**
+     * 按层批量处理的回调
+     */
+    @FunctionalInterface
+    public interface LevelConsumer {
+
+        /**
+         * 处理一层的数据
+         *
+         * @param level 层号，根节点为第0层
+         * @param keys  这一层的数据，从左到右排列，不包括墓碑，数组会被下一层复用，不能在回调之外保存
+         * @param count 这一层的数据个数，keys 中只有前 count 个元素有效
+         */
+        void accept(int level, int[] keys, int count);
+    }
+
+    /**
+     * 按层批量遍历
+     * 用两个数组分别保存当前层和下一层的节点，代替逐个节点入队出队；
+     * 每一层的数据写入同一个 int 数组后整体交给回调，遍历过程中只在树变宽时扩容
+     * 墓碑不会交给回调，全部是墓碑的层不调用回调
+     *
+     * @param consumer 每一层调用一次
+     */
+    public void levelOrder(LevelConsumer consumer) {
+        if (null == node) {
+            return;
+        }
+        TreeNode[] current = new TreeNode[16];
+        TreeNode[] next = new TreeNode[16];
+        int[] keys = new int[16];
+        current[0] = node;
+        int count = 1;
+        for (int level = 0; count > 0; level++) {
+            if (keys.length < count) {
+                keys = new int[current.length];
+            }
+            int nextCount = 0;
+            int live = 0;
+            for (int i = 0; i < count; i++) {
+                TreeNode treeNode = current[i];
+                if (!treeNode.deleted) {
+                    keys[live++] = treeNode.element;
+                }
+                //  下一层最多是当前层的两倍
+                if (nextCount + 2 > next.length) {
+                    next = Arrays.copyOf(next, next.length << 1);
+                }
+                if (null != treeNode.left) {
+                    next[nextCount++] = treeNode.left;
+                }
+                if (null != treeNode.right) {
+                    next[nextCount++] = treeNode.right;
+                }
+                current[i] = null;
+            }
+            if (live > 0) {
+                consumer.accept(level, keys, live);
+            }
+            TreeNode[] swap = current;
+            current = next;
+            next = swap;
+            count = nextCount;
         }
     }
 
+    /**
+     * 按层遍历，层与层之间严格按从浅到深的顺序；
+     * 节点数不少于 parallelThreshold 的层，这一层的数据在 ForkJoin 公共线程池中并行处理，同一层内不保证顺序
+     *
+     * @param action            对每个数据执行的操作，需要是线程安全的
+     * @param parallelThreshold 并行处理的最小层宽
+     */
+    public void levelOrder(IntConsumer action, int parallelThreshold) {
+        levelOrder((level, keys, count) -> {
+            if (count >= parallelThreshold) {
+                IntStream.range(0, count).parallel().forEach(i -> action.accept(keys[i]));
+            } else {
+                for (int i = 0; i < count; i++) {
+                    action.accept(keys[i]);
+                }
+            }
+        });
+    }
+
     public static void main(String[] args) {
         BinarySearchTree bst = new BinarySearchTree();
         bst.insert(8);
@@ -303,41 +1066,6 @@ public class BinarySearchTree {
         bst.levelOrder();
     }
 
-    private TreeNode getNode(Integer ele, TreeNode node) throws Exception {
-        if (isEmpty()) {
-            throw new Exception("二叉搜索树中不存在此节点");
-        }
-
-        int result = node.compareTo(ele);
-
-        if (result == 0) {
-            return node;
-        } else if (result > 0) {
-            return getNode(ele, node.right);
-        } else {
-            return getNode(ele, node.left);
-        }
-    }
-
-    private TreeNode getParentNode(TreeNode child, TreeNode node) throws IllegalAccessException {
-        if (isEmpty()) {
-            throw new NullPointerException();
-        }
-        if (node.left == child || node.right == child) {
-            return node;
-        }
-
-        int result = node.compareTo(child.element);
-
-        if (result > 0) {
-            return getParentNode(child, node.left);
-        } else if (result < 0) {
-            return getParentNode(child, node.right);
-        } else {
-            throw new IllegalAccessException();
-        }
-    }
-
     public void printTree(Integer ele) {
 
     }
@@ -357,6 +1085,11 @@ public class BinarySearchTree {
 
         private TreeNode right;
 
+        /**
+         * 惰性删除的墓碑标记
+         */
+        private boolean deleted;
+
         public TreeNode(Integer element) {
             this.element = element;
         }
@@ -369,9 +1102,12 @@ public class BinarySearchTree {
             this.right = right;
         }
 
+        /**
+         * 不能用 element - o，两个数相差超过 int 的范围时会溢出，得到相反的符号
+         */
         @Override
         public int compareTo(Integer o) {
-            return element - o;
+            return Integer.compare(element, o);
         }
     }
 }
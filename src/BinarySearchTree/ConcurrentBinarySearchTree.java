@@ -0,0 +1,315 @@
+package BinarySearchTree;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 无锁并发二叉搜索树
+ * <p>
+ * 每个节点的左右孩子和状态放在一个不可变的 {@link Links} 中，节点的任何修改都是对 links 的一次 CAS：
+ * 1.contains 只读 links，不加锁也不会被阻塞
+ * 2.insert 在空孩子位置上 CAS 新节点；如果找到了同值的已删除节点，CAS 将其恢复
+ * 3.remove 先 CAS 将节点标记为 DELETED(逻辑删除)，然后尝试物理删除
+ * <p>
+ * 物理删除对应 {@link BinarySearchTree} 中删除节点的几种情况：
+ * 1.没有孩子或只有一个孩子：CAS 为 REMOVED 冻结节点(此后孩子不会再变)，再 CAS 父节点的孩子指向删除节点的孩子
+ * 2.有两个孩子：Hibbard 删除需要把后继节点搬到删除节点的位置，这要求同时修改多个节点，单个 CAS 无法保证原子性。
+ * 所以节点只做逻辑删除，作为路由节点留在树中，等到它的某个孩子被物理删除、只剩一个孩子时再将它删除
+ * <p>
+ * 任何线程遇到 REMOVED 节点都会帮助完成删除，所以一个线程停顿不会阻塞其他线程
+ */
+public class ConcurrentBinarySearchTree {
+
+    private static final int PRESENT = 0;
+
+    /**
+     * 逻辑删除，节点仍然在树中
+     */
+    private static final int DELETED = 1;
+
+    /**
+     * 已冻结，正在或已经从树中摘除
+     */
+    private static final int REMOVED = 2;
+
+    /**
+     * 哨兵节点，它的左孩子是真正的根节点
+     */
+    private final TreeNode head = new TreeNode(0);
+
+    /**
+     * 逻辑删除的节点可能作为路由节点留在树中，所以不能只看根节点是否为 null，
+     * 而是遍历到第一个 PRESENT 节点为止。和 contains 一样只读 links，并发修改时结果只反映遍历期间某一时刻的状态
+     *
+     * @return 树中没有 PRESENT 节点时返回 true
+     */
+    public boolean isEmpty() {
+        Deque<TreeNode> stack = new ArrayDeque<>();
+        TreeNode root = head.links.get().left;
+        if (null != root) {
+            stack.push(root);
+        }
+        while (!stack.isEmpty()) {
+            Links links = stack.pop().links.get();
+            if (links.state == PRESENT) {
+                return false;
+            }
+            if (null != links.left) {
+                stack.push(links.left);
+            }
+            if (null != links.right) {
+                stack.push(links.right);
+            }
+        }
+        return true;
+    }
+
+    public boolean contains(int ele) {
+        TreeNode node = head.links.get().left;
+        while (null != node) {
+            Links links = node.links.get();
+            if (ele == node.element) {
+                return links.state == PRESENT;
+            }
+            node = ele < node.element ? links.left : links.right;
+        }
+        return false;
+    }
+
+    /**
+     * 插入数据
+     *
+     * @param ele 数据
+     * @return 插入前数据不存在时返回 true
+     */
+    public boolean insert(int ele) {
+        while (true) {
+            TreeNode parent = head;
+            Links parentLinks = head.links.get();
+            TreeNode node = parentLinks.left;
+            boolean left = true;
+            while (null != node) {
+                Links links = node.links.get();
+                if (ele == node.element) {
+                    break;
+                }
+                parent = node;
+                parentLinks = links;
+                left = ele < node.element;
+                node = left ? links.left : links.right;
+            }
+
+            if (null != node) {
+                Links links = node.links.get();
+                if (links.state == PRESENT) {
+                    return false;
+                }
+                if (links.state == DELETED) {
+                    //  恢复逻辑删除的节点
+                    if (node.links.compareAndSet(links, links.withState(PRESENT))) {
+                        return true;
+                    }
+                } else {
+                    //  节点正在被摘除，帮助完成后重试
+                    splice(node);
+                }
+                continue;
+            }
+
+            if (parentLinks.state == REMOVED) {
+                splice(parent);
+                continue;
+            }
+            TreeNode child = new TreeNode(ele);
+            Links updated = left ? parentLinks.withLeft(child) : parentLinks.withRight(child);
+            if (parent.links.compareAndSet(parentLinks, updated)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 删除数据
+     *
+     * @param ele 数据
+     * @return 删除前数据存在时返回 true
+     */
+    public boolean remove(int ele) {
+        while (true) {
+            TreeNode node = head.links.get().left;
+            while (null != node && ele != node.element) {
+                Links links = node.links.get();
+                node = ele < node.element ? links.left : links.right;
+            }
+            if (null == node) {
+                return false;
+            }
+            Links links = node.links.get();
+            if (links.state != PRESENT) {
+                return false;
+            }
+            if (node.links.compareAndSet(links, links.withState(DELETED))) {
+                tryRemove(node);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 尝试物理删除一个逻辑删除的节点，只有在它最多一个孩子时才能冻结
+     *
+     * @param node 节点
+     */
+    private void tryRemove(TreeNode node) {
+        Links links = node.links.get();
+        while (links.state == DELETED && (null == links.left || null == links.right)) {
+            if (node.links.compareAndSet(links, links.withState(REMOVED))) {
+                splice(node);
+                return;
+            }
+            links = node.links.get();
+        }
+    }
+
+    /**
+     * 将已冻结的节点从树中摘除：父节点原来指向它的孩子位置改为指向它唯一的孩子
+     * 父节点本身也被冻结时，先帮助摘除父节点
+     *
+     * @param node REMOVED 状态的节点
+     */
+    private void splice(TreeNode node) {
+        Links frozen = node.links.get();
+        TreeNode child = null == frozen.left ? frozen.right : frozen.left;
+        while (true) {
+            //  沿着查找路径找到父节点
+            TreeNode parent = head;
+            Links parentLinks = head.links.get();
+            TreeNode current = parentLinks.left;
+            while (null != current && current != node) {
+                Links links = current.links.get();
+                parent = current;
+                parentLinks = links;
+                current = node.element < current.element ? links.left : links.right;
+            }
+            if (null == current) {
+                //  已经被其他线程摘除
+                return;
+            }
+            if (parentLinks.state == REMOVED) {
+                splice(parent);
+                continue;
+            }
+            Links updated = parentLinks.left == node ? parentLinks.withLeft(child) : parentLinks.withRight(child);
+            if (parent.links.compareAndSet(parentLinks, updated)) {
+                //  父节点少了一个孩子，如果它是逻辑删除的路由节点，现在可能可以物理删除了
+                if (parent != head) {
+                    tryRemove(parent);
+                }
+                return;
+            }
+        }
+    }
+
+    private static final class TreeNode {
+
+        private final int element;
+
+        private final AtomicReference<Links> links = new AtomicReference<>(Links.EMPTY);
+
+        private TreeNode(int element) {
+            this.element = element;
+        }
+    }
+
+    /**
+     * 节点的左右孩子和状态，不可变，修改时整体替换
+     */
+    private static final class Links {
+
+        private static final Links EMPTY = new Links(null, null, PRESENT);
+
+        private final TreeNode left;
+
+        private final TreeNode right;
+
+        private final int state;
+
+        private Links(TreeNode left, TreeNode right, int state) {
+            this.left = left;
+            this.right = right;
+            this.state = state;
+        }
+
+        private Links withLeft(TreeNode left) {
+            return new Links(left, right, state);
+        }
+
+        private Links withRight(TreeNode right) {
+            return new Links(left, right, state);
+        }
+
+        private Links withState(int state) {
+            return new Links(left, right, state);
+        }
+    }
+
+    /**
+     * 压力测试：每个线程在自己的键空间内随机 insert/remove/contains，并和本地记录对比，
+     * 线程数从 1 增加到 CPU 核数(或第一个参数指定的线程数)，输出吞吐量
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int operations = 1 << 20;
+        int keysPerThread = 1 << 14;
+        for (int threads = 1; threads <= maxThreads; threads <<= 1) {
+            ConcurrentBinarySearchTree tree = new ConcurrentBinarySearchTree();
+            CountDownLatch start = new CountDownLatch(1);
+            Thread[] workers = new Thread[threads];
+            boolean[] failed = new boolean[threads];
+            for (int t = 0; t < threads; t++) {
+                int id = t;
+                int stride = threads;
+                workers[t] = new Thread(() -> {
+                    boolean[] present = new boolean[keysPerThread];
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < operations; i++) {
+                        int k = random.nextInt(keysPerThread);
+                        //  不同线程的键交错分布，保证它们在同一棵子树中竞争
+                        int key = k * stride + id;
+                        int op = random.nextInt(10);
+                        if (op < 2) {
+                            failed[id] |= tree.insert(key) == present[k];
+                            present[k] = true;
+                        } else if (op < 4) {
+                            failed[id] |= tree.remove(key) != present[k];
+                            present[k] = false;
+                        } else {
+                            failed[id] |= tree.contains(key) != present[k];
+                        }
+                    }
+                });
+                workers[t].start();
+            }
+            long begin = System.nanoTime();
+            start.countDown();
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            long elapsed = System.nanoTime() - begin;
+            boolean ok = true;
+            for (boolean f : failed) {
+                ok &= !f;
+            }
+            System.out.printf("threads=%d ops/ms=%d ok=%b%n",
+                    threads, (long) operations * threads * 1_000_000L / elapsed, ok);
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package BinarySearchTree;
+
+import Common.TreeMetrics;
+
+/**
+ * 伸展树：自调整的二叉搜索树
+ * <p>
+ * 每次 contains、insert、remove 都把访问的节点(找不到时是路径上最后一个节点)伸展到根，
+ * 经常访问的数据会停留在根附近，访问集中在少量热点时平均比较次数远小于 log N；单次操作可能是 O(N)，但均摊 O(log N)
+ * <p>
+ * 使用自顶向下伸展(Sleator & Tarjan)：从根向下查找的同时拆出左树(都小于 key)和右树(都大于 key)，
+ * 一字形(zig-zig)时先旋转再下降，最后把左右树挂到目标节点下面。只走一遍路径，不需要父指针，也不需要递归或栈
+ * <p>
+ * 注意 contains 也会修改树的结构，所以即使只读也不能被多个线程同时访问
+ */
+public class SplayBinarySearchTree {
+
+    private static final class Node {
+
+        private final int element;
+
+        private Node left;
+
+        private Node right;
+
+        private Node(int element) {
+            this.element = element;
+        }
+    }
+
+    private Node root;
+
+    private int size;
+
+    /**
+     * 伸展时临时挂左右树的头节点，复用以避免每次分配
+     */
+    private final Node header = new Node(0);
+
+    /**
+     * 操作统计，为 null 时不统计
+     */
+    private TreeMetrics metrics;
+
+    /**
+     * 最近一次伸展的比较次数和到达的深度
+     */
+    private int comparisons;
+
+    private int depth;
+
+    /**
+     * 开启或关闭(传入 null) insert、remove、contains 的统计，深度为伸展前到达的深度
+     *
+     * @param metrics 统计
+     */
+    public void setMetrics(TreeMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public TreeMetrics getMetrics() {
+        return metrics;
+    }
+
+    public void makeEmpty() {
+        root = null;
+        size = 0;
+    }
+
+    public boolean isEmpty() {
+        return null == root;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 自顶向下伸展，把 key 所在的节点(不存在时为路径上最后一个节点)变为根
+     *
+     * @param t   子树的根，不能为 null
+     * @param key 数据
+     * @return 新的根
+     */
+    private Node splay(Node t, int key) {
+        Node header = this.header;
+        header.left = null;
+        header.right = null;
+        //  l 是左树中最大的节点，r 是右树中最小的节点
+        Node l = header;
+        Node r = header;
+        //  c 是 key 与 t 的比较结果，向下走时沿用已经比较过的结果，每个节点最多比较一次
+        int c = Integer.compare(key, t.element);
+        int comparisons = 1;
+        int depth = 1;
+        while (c != 0) {
+            if (c < 0) {
+                Node child = t.left;
+                if (null == child) {
+                    break;
+                }
+                c = Integer.compare(key, child.element);
+                comparisons++;
+                depth++;
+                if (c < 0) {
+                    //  zig-zig：先右旋
+                    t.left = child.right;
+                    child.right = t;
+                    t = child;
+                    if (null == t.left) {
+                        break;
+                    }
+                    //  把 t 挂到右树上，继续向下
+                    r.left = t;
+                    r = t;
+                    t = t.left;
+                    c = Integer.compare(key, t.element);
+                    comparisons++;
+                    depth++;
+                } else {
+                    //  把 t 挂到右树上
+                    r.left = t;
+                    r = t;
+                    t = child;
+                }
+            } else {
+                Node child = t.right;
+                if (null == child) {
+                    break;
+                }
+                c = Integer.compare(key, child.element);
+                comparisons++;
+                depth++;
+                if (c > 0) {
+                    //  zag-zag：先左旋
+                    t.right = child.left;
+                    child.left = t;
+                    t = child;
+                    if (null == t.right) {
+                        break;
+                    }
+                    //  把 t 挂到左树上，继续向下
+                    l.right = t;
+                    l = t;
+                    t = t.right;
+                    c = Integer.compare(key, t.element);
+                    comparisons++;
+                    depth++;
+                } else {
+                    //  把 t 挂到左树上
+                    l.right = t;
+                    l = t;
+                    t = child;
+                }
+            }
+        }
+        //  组装：t 的左右子树分别接到左树和右树，左右树成为 t 的孩子
+        l.right = t.left;
+        r.left = t.right;
+        t.left = header.right;
+        t.right = header.left;
+        header.left = null;
+        header.right = null;
+        this.comparisons = comparisons;
+        this.depth = depth;
+        return t;
+    }
+
+    public boolean contains(int e) {
+        if (null == root) {
+            return false;
+        }
+        root = splay(root, e);
+        record(comparisons, depth);
+        return root.element == e;
+    }
+
+    private void record(int comparisons, int depth) {
+        if (null != metrics) {
+            metrics.record(comparisons, depth, depth);
+        }
+    }
+
+    /**
+     * 先伸展，根据新根与 e 的大小关系把树拆成两半，作为新节点的左右子树
+     *
+     * @param e 数据
+     */
+    public void insert(int e) {
+        if (null == root) {
+            root = new Node(e);
+            size++;
+            return;
+        }
+        root = splay(root, e);
+        record(comparisons, depth);
+        if (root.element == e) {
+            return;
+        }
+        Node node = new Node(e);
+        if (e < root.element) {
+            node.left = root.left;
+            node.right = root;
+            root.left = null;
+        } else {
+            node.right = root.right;
+            node.left = root;
+            root.right = null;
+        }
+        root = node;
+        size++;
+    }
+
+    /**
+     * 把要删除的节点伸展到根，再把左子树中最大的节点伸展上来，它没有右孩子，直接接上原来的右子树
+     *
+     * @param e 数据
+     */
+    public void remove(int e) {
+        if (null == root) {
+            return;
+        }
+        root = splay(root, e);
+        if (root.element != e) {
+            record(comparisons, depth);
+            return;
+        }
+        if (null == root.left) {
+            record(comparisons, depth);
+            root = root.right;
+        } else {
+            int found = comparisons;
+            int foundDepth = depth;
+            Node right = root.right;
+            root = splay(root.left, e);
+            root.right = right;
+            record(found + comparisons, foundDepth);
+        }
+        size--;
+    }
+
+    public static void main(String[] args) {
+        SplayBinarySearchTree tree = new SplayBinarySearchTree();
+        for (int i = 1; i <= 1000; i++) {
+            tree.insert(i);
+        }
+        tree.contains(500);
+        System.out.println("根: " + tree.root.element);
+        for (int i = 1; i <= 1000; i += 2) {
+            tree.remove(i);
+        }
+        System.out.println(tree.size() + " " + tree.contains(2) + " " + tree.contains(3));
+    }
+}
@@ -0,0 +1,107 @@
+package BinaryTree;
+
+/**
+ * 由表达式树编译得到的求值器
+ * <p>
+ * 表达式树按后序遍历编译成基于寄存器的指令数组，每条指令占 4 个 int：操作码、目标寄存器、两个源操作数。
+ * 求值时顺序执行指令，不需要遍历树，也不会分配内存：
+ * 1.LOAD_VAR   dst, index      将变量 vars[index] 装入寄存器
+ * 2.LOAD_CONST dst, index      将常量 constants[index] 装入寄存器
+ * 3.ADD/SUB/MUL/DIV dst, a, b  registers[dst] = registers[a] op registers[b]
+ * <p>
+ * 计算结果在 0 号寄存器中
+ */
+public final class CompiledExpression {
+
+    static final int LOAD_VAR = 0;
+    static final int LOAD_CONST = 1;
+    static final int ADD = 2;
+    static final int SUB = 3;
+    static final int MUL = 4;
+    static final int DIV = 5;
+
+    private final int[] code;
+
+    private final double[] constants;
+
+    private final int variableCount;
+
+    /**
+     * 默认的寄存器，evaluate(double[]) 复用它，所以同一个实例不能被多个线程同时用它计算
+     */
+    private final double[] registers;
+
+    CompiledExpression(int[] code, double[] constants, int registerCount, int variableCount) {
+        this.code = code;
+        this.constants = constants;
+        this.variableCount = variableCount;
+        this.registers = new double[registerCount];
+    }
+
+    /**
+     * @return 需要的寄存器个数
+     */
+    public int getRegisterCount() {
+        return registers.length;
+    }
+
+    /**
+     * @return 变量数组至少需要的长度
+     */
+    public int getVariableCount() {
+        return variableCount;
+    }
+
+    /**
+     * 使用实例自带的寄存器计算，不分配内存，非线程安全
+     *
+     * @param vars 变量的值，a 对应 vars[0]，b 对应 vars[1]，以此类推
+     * @return 表达式的值
+     */
+    public double evaluate(double[] vars) {
+        return evaluate(vars, registers);
+    }
+
+    /**
+     * 使用调用方提供的寄存器计算，多个线程各自传入自己的寄存器即可并发计算
+     *
+     * @param vars      变量的值
+     * @param registers 寄存器，长度不能小于 {@link #getRegisterCount()}
+     * @return 表达式的值
+     */
+    public double evaluate(double[] vars, double[] registers) {
+        if (vars.length < variableCount) {
+            throw new IllegalArgumentException("变量数组的长度不能小于 " + variableCount);
+        }
+        if (registers.length < this.registers.length) {
+            throw new IllegalArgumentException("寄存器的个数不能小于 " + this.registers.length);
+        }
+        int[] code = this.code;
+        for (int pc = 0; pc < code.length; pc += 4) {
+            int dst = code[pc + 1];
+            int a = code[pc + 2];
+            int b = code[pc + 3];
+            switch (code[pc]) {
+                case LOAD_VAR:
+                    registers[dst] = vars[a];
+                    break;
+                case LOAD_CONST:
+                    registers[dst] = constants[a];
+                    break;
+                case ADD:
+                    registers[dst] = registers[a] + registers[b];
+                    break;
+                case SUB:
+                    registers[dst] = registers[a] - registers[b];
+                    break;
+                case MUL:
+                    registers[dst] = registers[a] * registers[b];
+                    break;
+                default:
+                    registers[dst] = registers[a] / registers[b];
+                    break;
+            }
+        }
+        return registers[0];
+    }
+}
@@ -1,13 +1,25 @@
 package BinaryTree;
 
+import 栈ADT.Stack;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
 /**
  * 二叉树 Binary Tree： 每个节点都不能多于两个孩子
  * <p>
  * 性质：
  * 1.每个节点都不能多于两个孩子
  * 2.一颗二叉树的平均深度要比节点个数小得多，平均深度为 根号n，最坏情形的二叉树深度为N-1（像链表一样）
+ * <p>
+ * 迭代时按中序遍历，{@link #spliterator()} 可以拆分，StreamSupport.stream(tree.spliterator(), true) 可以并行处理各个子树
  */
-public class TreeNode {
+public class TreeNode implements Iterable<Object> {
 
     /**
      * 此树所保存的数据
@@ -36,14 +48,25 @@ public class TreeNode {
         this.right = right;
     }
 
-    static class Traverse {
+    @Override
+    public Iterator<Object> iterator() {
+        return Traverse.inOrder(this);
+    }
+
+    @Override
+    public Spliterator<Object> spliterator() {
+        return new InOrderSpliterator(null, this);
+    }
+
+    public static class Traverse {
 
         /**
          * 二叉树 先序、中序、后序遍历中的先、中、后形容的是根所应该遍历的位置
          * 先序就是先遍历根，后序就是在最后遍历根
          * 默认的顺序是左子树优先于右子树遍历
          *
-         * 前序、中序、后续遍历均使用递归的方式实现
+         * LDR、DLR、LRD 使用递归的方式实现并直接打印，
+         * inOrder、preOrder、postOrder 返回迭代器，使用显式栈实现，morrisLDR 不使用栈
          */
 
         /**
@@ -100,9 +123,541 @@ public class TreeNode {
             LRD(node.right);
             System.out.print(node.element);
         }
+
+        /**
+         * 中序遍历的迭代器，使用显式栈代替递归，不会因为树太深而栈溢出
+         * 先把从当前节点开始的整条左链入栈，每次弹出一个节点后再把它右子树的左链入栈
+         *
+         * @param node 节点
+         * @return 迭代器
+         */
+        public static Iterator<Object> inOrder(TreeNode node) {
+            return new InOrderIterator(null, node);
+        }
+
+        /**
+         * 先序遍历的迭代器
+         * 弹出节点时先压入右孩子再压入左孩子，这样左子树先被遍历
+         *
+         * @param node 节点
+         * @return 迭代器
+         */
+        public static Iterator<Object> preOrder(TreeNode node) {
+            return new Iterator<Object>() {
+
+                private final ArrayDeque<TreeNode> stack = new ArrayDeque<>();
+
+                {
+                    if (null != node) {
+                        stack.push(node);
+                    }
+                }
+
+                @Override
+                public boolean hasNext() {
+                    return !stack.isEmpty();
+                }
+
+                @Override
+                public Object next() {
+                    if (stack.isEmpty()) {
+                        throw new NoSuchElementException();
+                    }
+                    TreeNode current = stack.pop();
+                    if (null != current.right) {
+                        stack.push(current.right);
+                    }
+                    if (null != current.left) {
+                        stack.push(current.left);
+                    }
+                    return current.element;
+                }
+            };
+        }
+
+        /**
+         * 后序遍历的迭代器
+         * 沿左链(左孩子为空时沿右孩子)一直向下入栈，栈顶就是下一个要访问的节点；
+         * 弹出后如果它是父节点的左孩子，再从父节点的右子树开始继续向下
+         *
+         * @param node 节点
+         * @return 迭代器
+         */
+        public static Iterator<Object> postOrder(TreeNode node) {
+            return new Iterator<Object>() {
+
+                private final ArrayDeque<TreeNode> stack = new ArrayDeque<>();
+
+                {
+                    descend(node);
+                }
+
+                private void descend(TreeNode current) {
+                    while (null != current) {
+                        stack.push(current);
+                        current = null != current.left ? current.left : current.right;
+                    }
+                }
+
+                @Override
+                public boolean hasNext() {
+                    return !stack.isEmpty();
+                }
+
+                @Override
+                public Object next() {
+                    if (stack.isEmpty()) {
+                        throw new NoSuchElementException();
+                    }
+                    TreeNode current = stack.pop();
+                    TreeNode parent = stack.peek();
+                    if (null != parent && parent.left == current) {
+                        descend(parent.right);
+                    }
+                    return current.element;
+                }
+            };
+        }
+
+        /**
+         * Morris 中序遍历，只使用 O(1) 的额外空间
+         * 访问一个有左子树的节点前，把它左子树中最右节点(前驱)的右指针临时指向它，
+         * 这样遍历完左子树后可以顺着这条线索回到它，回来时再把右指针恢复为 null
+         * <p>
+         * 遍历期间树会被临时修改，所以不能与其他读写并发；遍历结束后树恢复原样，
+         * action 抛出异常时也会先拆除剩下的线索再把异常抛出
+         *
+         * @param node   节点
+         * @param action 对每个元素执行的操作
+         */
+        public static void morrisLDR(TreeNode node, Consumer<Object> action) {
+            TreeNode current = node;
+            try {
+                while (null != current) {
+                    if (null == current.left) {
+                        action.accept(current.element);
+                        current = current.right;
+                        continue;
+                    }
+                    //  寻找前驱节点
+                    TreeNode predecessor = predecessor(current);
+                    if (null == predecessor.right) {
+                        //  第一次到达，建立线索后进入左子树
+                        predecessor.right = current;
+                        current = current.left;
+                    } else {
+                        //  左子树已经遍历完，拆除线索
+                        predecessor.right = null;
+                        action.accept(current.element);
+                        current = current.right;
+                    }
+                }
+            } finally {
+                unthread(current);
+            }
+        }
+
+        /**
+         * 左子树中最右的节点，或者已经指向 node 的线索所在的节点
+         */
+        private static TreeNode predecessor(TreeNode node) {
+            TreeNode predecessor = node.left;
+            while (null != predecessor.right && predecessor.right != node) {
+                predecessor = predecessor.right;
+            }
+            return predecessor;
+        }
+
+        /**
+         * 从 current 开始不访问元素继续 Morris 遍历，拆除 current 的祖先上还没有拆除的线索
+         *
+         * @param current 遍历中断时的节点，遍历正常结束时为 null
+         */
+        private static void unthread(TreeNode current) {
+            while (null != current) {
+                if (null == current.left) {
+                    current = current.right;
+                    continue;
+                }
+                TreeNode predecessor = predecessor(current);
+                if (null == predecessor.right) {
+                    predecessor.right = current;
+                    current = current.left;
+                } else {
+                    predecessor.right = null;
+                    current = current.right;
+                }
+            }
+        }
     }
 
-    static class ExpressionTree {
+    /**
+     * 中序遍历的迭代器，遍历的内容是 pending(可能为空) 加上 subtree 的中序序列
+     */
+    private static class InOrderIterator implements Iterator<Object> {
+
+        private final ArrayDeque<TreeNode> stack = new ArrayDeque<>();
+
+        /**
+         * 只访问它自己，不展开它的子树
+         */
+        private TreeNode pending;
+
+        InOrderIterator(TreeNode pending, TreeNode subtree) {
+            this.pending = pending;
+            pushLeft(subtree);
+        }
+
+        private void pushLeft(TreeNode node) {
+            while (null != node) {
+                stack.push(node);
+                node = node.left;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return null != pending || !stack.isEmpty();
+        }
+
+        @Override
+        public Object next() {
+            if (null != pending) {
+                TreeNode node = pending;
+                pending = null;
+                return node.element;
+            }
+            if (stack.isEmpty()) {
+                throw new NoSuchElementException();
+            }
+            TreeNode node = stack.pop();
+            pushLeft(node.right);
+            return node.element;
+        }
+    }
+
+    /**
+     * 可拆分的中序遍历，用于并行流
+     * 遍历的内容是 pending 节点本身加上 subtree 的中序序列，拆分时：
+     * 前一半为 pending 加上 subtree 的左子树，后一半为 subtree 的根节点加上 subtree 的右子树，
+     * 两部分合起来正好是原来的中序序列，所以拆分后仍然有序
+     * <p>
+     * 节点没有记录子树大小，第一次需要大小时遍历一遍整棵树计数，此时大小是精确的(SIZED)；
+     * 拆分后两部分各取一半作为估计值，不再精确。估计值小于 {@link #MIN_SPLIT_SIZE} 时不再拆分，
+     * 避免为很少的几个节点创建并行任务
+     */
+    private static class InOrderSpliterator implements Spliterator<Object> {
+
+        private static final long MIN_SPLIT_SIZE = 1 << 10;
+
+        private TreeNode pending;
+
+        private TreeNode subtree;
+
+        private InOrderIterator iterator;
+
+        /**
+         * 开始遍历前的元素个数，-1 表示还没有计数
+         */
+        private long size;
+
+        /**
+         * 已经遍历的元素个数
+         */
+        private long consumed;
+
+        /**
+         * size 是否精确，拆分后为 false
+         */
+        private boolean exact;
+
+        InOrderSpliterator(TreeNode pending, TreeNode subtree) {
+            this(pending, subtree, -1, true);
+        }
+
+        private InOrderSpliterator(TreeNode pending, TreeNode subtree, long size, boolean exact) {
+            this.pending = pending;
+            this.subtree = subtree;
+            this.size = size;
+            this.exact = exact;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Object> action) {
+            if (null == iterator) {
+                iterator = new InOrderIterator(pending, subtree);
+            }
+            if (!iterator.hasNext()) {
+                return false;
+            }
+            consumed++;
+            action.accept(iterator.next());
+            return true;
+        }
+
+        @Override
+        public Spliterator<Object> trySplit() {
+            //  已经开始遍历、没有可以拆分的子树或者剩下的太少
+            if (null != iterator || null == subtree || estimateSize() < MIN_SPLIT_SIZE) {
+                return null;
+            }
+            long half = size >>> 1;
+            Spliterator<Object> prefix = new InOrderSpliterator(pending, subtree.left, half, false);
+            pending = subtree;
+            subtree = subtree.right;
+            size -= half;
+            exact = false;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            if (size < 0) {
+                size = count(subtree) + (null == pending ? 0 : 1);
+            }
+            return Math.max(0, size - consumed);
+        }
+
+        /**
+         * 用显式栈计数，不会因为树很深而栈溢出
+         */
+        private static long count(TreeNode node) {
+            if (null == node) {
+                return 0;
+            }
+            long count = 0;
+            ArrayDeque<TreeNode> stack = new ArrayDeque<>();
+            stack.push(node);
+            while (!stack.isEmpty()) {
+                TreeNode current = stack.pop();
+                count++;
+                if (null != current.left) {
+                    stack.push(current.left);
+                }
+                if (null != current.right) {
+                    stack.push(current.right);
+                }
+            }
+            return count;
+        }
+
+        @Override
+        public int characteristics() {
+            return exact ? ORDERED | SIZED : ORDERED;
+        }
+    }
+
+    /**
+     * 表达式树：树叶是操作数(变量或常数)，其他节点是运算符
+     * <p>
+     * 变量用单个小写字母表示，a 对应变量数组的第0个元素，b 对应第1个，以此类推；
+     * 常数用 Number 或数字字符串表示；运算符支持 + - * /
+     */
+    public static class ExpressionTree {
+
+        /**
+         * 由后缀表达式构建表达式树：
+         * 1.遇到操作数，创建单节点树并入栈
+         * 2.遇到运算符，弹出两棵树作为右、左子树，与运算符组成新的树并入栈
+         * 3.最后栈中只剩的一棵树就是表达式树
+         *
+         * @param tokens 后缀表达式，如 ["a", "b", "c", "*", "+"]
+         * @return 表达式树
+         */
+        public static TreeNode fromPostfix(List<String> tokens) {
+            Stack<TreeNode> stack = new Stack<>();
+            for (String token : tokens) {
+                if (isOperator(token)) {
+                    if (stack.size() < 2) {
+                        throw new IllegalArgumentException("后缀表达式不合法: 运算符缺少操作数");
+                    }
+                    TreeNode right = stack.pop();
+                    TreeNode left = stack.pop();
+                    TreeNode node = new TreeNode(token);
+                    node.setLeft(left);
+                    node.setRight(right);
+                    stack.push(node);
+                } else if (isVariable(token)) {
+                    stack.push(new TreeNode(token.charAt(0)));
+                } else {
+                    stack.push(new TreeNode(Double.parseDouble(token)));
+                }
+            }
+            if (stack.size() != 1) {
+                throw new IllegalArgumentException("后缀表达式不合法: 计算结束后剩余 " + stack.size() + " 棵树");
+            }
+            return stack.pop();
+        }
+
+        /**
+         * 常量折叠：两个孩子都是常数的运算符节点直接替换为计算结果，自下而上进行
+         * 不修改原来的树，只有发生变化的路径会被复制
+         *
+         * @param node 表达式树
+         * @return 折叠后的表达式树
+         */
+        public static TreeNode fold(TreeNode node) {
+            if (null == node || null == node.left || null == node.right) {
+                return node;
+            }
+            TreeNode left = fold(node.left);
+            TreeNode right = fold(node.right);
+            if (null != constant(left) && null != constant(right)) {
+                return new TreeNode(apply(operator(node), constant(left), constant(right)));
+            }
+            if (left == node.left && right == node.right) {
+                return node;
+            }
+            TreeNode copy = new TreeNode(node.element);
+            copy.setLeft(left);
+            copy.setRight(right);
+            return copy;
+        }
+
+        /**
+         * 将表达式树编译为求值器，编译前先进行常量折叠
+         * 按后序遍历生成指令，左子树的结果放在寄存器 r 中，右子树的结果放在寄存器 r+1 中，
+         * 运算结果写回寄存器 r，所以寄存器的个数等于树的高度
+         *
+         * @param node 表达式树
+         * @return 求值器
+         */
+        public static CompiledExpression compile(TreeNode node) {
+            if (null == node) {
+                throw new IllegalArgumentException("表达式树为空");
+            }
+            Compiler compiler = new Compiler();
+            compiler.emit(fold(node), 0);
+            return new CompiledExpression(Arrays.copyOf(compiler.code, compiler.size),
+                    Arrays.copyOf(compiler.constants, compiler.constantCount),
+                    compiler.registerCount, compiler.variableCount);
+        }
+
+        private static final class Compiler {
+
+            private int[] code = new int[64];
+
+            private int size;
+
+            private double[] constants = new double[8];
+
+            private int constantCount;
+
+            private int registerCount;
+
+            private int variableCount;
+
+            private void emit(TreeNode node, int register) {
+                registerCount = Math.max(registerCount, register + 1);
+                if (null == node.left || null == node.right) {
+                    Double constant = constant(node);
+                    if (null != constant) {
+                        if (constantCount == constants.length) {
+                            constants = Arrays.copyOf(constants, constantCount << 1);
+                        }
+                        constants[constantCount] = constant;
+                        append(CompiledExpression.LOAD_CONST, register, constantCount++, 0);
+                    } else {
+                        int index = variable(node);
+                        variableCount = Math.max(variableCount, index + 1);
+                        append(CompiledExpression.LOAD_VAR, register, index, 0);
+                    }
+                    return;
+                }
+                emit(node.left, register);
+                emit(node.right, register + 1);
+                int opcode;
+                switch (operator(node)) {
+                    case '+':
+                        opcode = CompiledExpression.ADD;
+                        break;
+                    case '-':
+                        opcode = CompiledExpression.SUB;
+                        break;
+                    case '*':
+                        opcode = CompiledExpression.MUL;
+                        break;
+                    default:
+                        opcode = CompiledExpression.DIV;
+                        break;
+                }
+                append(opcode, register, register, register + 1);
+            }
+
+            private void append(int opcode, int dst, int a, int b) {
+                if (size == code.length) {
+                    code = Arrays.copyOf(code, size << 1);
+                }
+                code[size++] = opcode;
+                code[size++] = dst;
+                code[size++] = a;
+                code[size++] = b;
+            }
+        }
+
+        private static boolean isOperator(String token) {
+            return token.length() == 1 && "+-*/".indexOf(token.charAt(0)) >= 0;
+        }
+
+        private static boolean isVariable(String token) {
+            return token.length() == 1 && token.charAt(0) >= 'a' && token.charAt(0) <= 'z';
+        }
+
+        /**
+         * 运算符节点的运算符，节点数据可能是 Character 也可能是 String
+         */
+        private static char operator(TreeNode node) {
+            String token = String.valueOf(node.element);
+            if (!isOperator(token)) {
+                throw new IllegalArgumentException("不支持的运算符: " + token);
+            }
+            return token.charAt(0);
+        }
+
+        /**
+         * 叶子节点对应的变量下标
+         */
+        private static int variable(TreeNode node) {
+            String token = String.valueOf(node.element);
+            if (!isVariable(token)) {
+                throw new IllegalArgumentException("不支持的操作数: " + token);
+            }
+            return token.charAt(0) - 'a';
+        }
+
+        /**
+         * 叶子节点对应的常数，不是常数时返回 null
+         */
+        private static Double constant(TreeNode node) {
+            if (null != node.left || null != node.right) {
+                return null;
+            }
+            if (node.element instanceof Number) {
+                return ((Number) node.element).doubleValue();
+            }
+            String token = String.valueOf(node.element);
+            if (isVariable(token)) {
+                return null;
+            }
+            try {
+                return Double.parseDouble(token);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        private static double apply(char operator, double left, double right) {
+            switch (operator) {
+                case '+':
+                    return left + right;
+                case '-':
+                    return left - right;
+                case '*':
+                    return left * right;
+                default:
+                    return left / right;
+            }
+        }
 
         public static void main(String[] args) {
 
@@ -156,6 +711,12 @@ public class TreeNode {
             System.out.println("");
             System.out.print("后序遍历： ");
             Traverse.LRD(root);
+            System.out.println("");
+
+            //  由后缀表达式构建同一棵树，编译后代入 a..g = 1..7 计算
+            TreeNode tree = fromPostfix(Arrays.asList("a", "b", "c", "*", "+", "d", "e", "*", "f", "+", "g", "*", "+"));
+            double[] vars = {1, 2, 3, 4, 5, 6, 7};
+            System.out.println("a + b*c + (d*e + f)*g = " + compile(root).evaluate(vars) + " " + compile(tree).evaluate(vars));
         }
     }
 }
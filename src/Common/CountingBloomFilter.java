@@ -0,0 +1,103 @@
+package Common;
+
+import java.util.Arrays;
+
+/**
+ * int 键的计数布隆过滤器
+ * <p>
+ * 普通布隆过滤器每个位置只有一位，无法删除；这里每个位置是一个 4 位计数器，16 个打包在一个 long 中，
+ * 添加时 k 个计数器加1，删除时减1，所有计数器都大于0时才可能存在
+ * 1.k 个位置由一次 64 位混合得到的两个哈希值按 h1 + i * h2 生成(双重哈希)
+ * 2.计数器达到 15 后不再增加也不再减少，避免溢出后减到0产生假阴性，代价是这个位置永远不会被清零
+ * <p>
+ * 只能删除确实添加过的键，否则会产生假阴性
+ */
+final class CountingBloomFilter {
+
+    private static final int BITS_PER_COUNTER = 4;
+
+    private static final int COUNTERS_PER_WORD = 64 / BITS_PER_COUNTER;
+
+    private static final long MAX = 15;
+
+    private final long[] words;
+
+    private final int mask;
+
+    private final int hashes;
+
+    /**
+     * @param expectedKeys 预计的键个数，超过后误判率会上升
+     */
+    CountingBloomFilter(int expectedKeys) {
+        //  每个键 10 个计数器、7 个哈希，误判率约 1%
+        long counters = Math.max(64, Long.highestOneBit(Math.max(1L, (long) expectedKeys * 10) - 1) << 1);
+        if (counters > 1L << 30) {
+            counters = 1L << 30;
+        }
+        this.words = new long[(int) (counters / COUNTERS_PER_WORD)];
+        this.mask = (int) counters - 1;
+        this.hashes = 7;
+    }
+
+    private static long mix(int key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 32;
+        h *= 0xD6E8FEB86659FD93L;
+        h ^= h >>> 32;
+        return h;
+    }
+
+    private long get(int index) {
+        return (words[index >>> 4] >>> ((index & 15) << 2)) & MAX;
+    }
+
+    private void add(int index, long delta) {
+        words[index >>> 4] += delta << ((index & 15) << 2);
+    }
+
+    void add(int key) {
+        long h = mix(key);
+        int h1 = (int) h;
+        int h2 = (int) (h >>> 32) | 1;
+        for (int i = 0; i < hashes; i++) {
+            int index = (h1 + i * h2) & mask;
+            if (get(index) < MAX) {
+                add(index, 1);
+            }
+        }
+    }
+
+    void remove(int key) {
+        long h = mix(key);
+        int h1 = (int) h;
+        int h2 = (int) (h >>> 32) | 1;
+        for (int i = 0; i < hashes; i++) {
+            int index = (h1 + i * h2) & mask;
+            long count = get(index);
+            if (count > 0 && count < MAX) {
+                add(index, -1);
+            }
+        }
+    }
+
+    /**
+     * @param key 键
+     * @return false 表示一定不存在，true 表示可能存在
+     */
+    boolean mightContain(int key) {
+        long h = mix(key);
+        int h1 = (int) h;
+        int h2 = (int) (h >>> 32) | 1;
+        for (int i = 0; i < hashes; i++) {
+            if (get((h1 + i * h2) & mask) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    void clear() {
+        Arrays.fill(words, 0);
+    }
+}
@@ -0,0 +1,153 @@
+package Common;
+
+/**
+ * 冻结后的只读查找索引，由 BinarySearchTree.freeze() 或 AVL.freeze() 生成
+ * <p>
+ * 数据按 Eytzinger(层序) 顺序保存在一个 int 数组中：下标从1开始，节点 k 的左孩子是 2k，右孩子是 2k+1，
+ * 相当于把一棵完全平衡的二叉搜索树按层序铺平，不需要保存任何指针
+ * 1.查找时 k = 2k + (keys[k] < x)，每层只有一次比较，没有难以预测的分支，JIT 会编译为条件传送
+ * 2.走到底后 k 的二进制记录了整条路径，1 表示向右、0 表示向左：
+ * 去掉末尾的 1 和最后一个 0 回到最后一次向左走的节点，就是第一个 >= x 的位置；
+ * 去掉末尾的 0 和最后一个 1 回到最后一次向右走的节点，就是最后一个 < x 的位置
+ * 3.前几层集中在数组开头，总是在缓存中；往下每 4 层的 16 个后代在数组中是连续的，对硬件预取友好
+ * <p>
+ * contains/floor/ceiling 只访问 keys；另外保存每个位置在有序序列中的排名，只有 rank 需要
+ */
+public final class EytzingerIndex {
+
+    /**
+     * keys[1..n] 为 Eytzinger 顺序的数据，keys[0] 不使用
+     */
+    private final int[] keys;
+
+    /**
+     * ranks[k] 为 keys[k] 在有序序列中的排名(从0开始)
+     */
+    private final int[] ranks;
+
+    private final int size;
+
+    private EytzingerIndex(int[] sorted) {
+        this.size = sorted.length;
+        this.keys = new int[size + 1];
+        this.ranks = new int[size + 1];
+        fill(sorted);
+    }
+
+    /**
+     * 由有序且不重复的数组构建索引，数据被复制到索引自己的数组中，之后修改传入的数组不影响索引
+     *
+     * @param sorted 有序且不重复的数组
+     * @return 索引
+     */
+    public static EytzingerIndex of(int[] sorted) {
+        for (int i = 1; i < sorted.length; i++) {
+            if (sorted[i - 1] >= sorted[i]) {
+                throw new IllegalArgumentException("数组必须有序且不重复，下标: " + i);
+            }
+        }
+        return new EytzingerIndex(sorted);
+    }
+
+    /**
+     * 按中序遍历 Eytzinger 树，依次填入有序的数据
+     * 用显式的下标代替递归：先一直向左走，再回到父节点，然后转向右子树
+     *
+     * @param sorted 有序的数据
+     */
+    private void fill(int[] sorted) {
+        int n = size;
+        int k = 1;
+        int i = 0;
+        while (i < n) {
+            //  向左走到底
+            while (k <= n) {
+                k <<= 1;
+            }
+            //  回到最近一个还没有访问的祖先：去掉末尾的 1(从右子树返回的步数)和一个 0
+            k >>>= Integer.numberOfTrailingZeros(~k) + 1;
+            keys[k] = sorted[i];
+            ranks[k] = i++;
+            k = (k << 1) + 1;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * 从根一直走到底
+     *
+     * @param x 数据
+     * @return 走到底后的位置(大于 n)，二进制记录了经过的路径
+     */
+    private int descend(int x) {
+        int[] keys = this.keys;
+        int n = size;
+        int k = 1;
+        while (k <= n) {
+            k = (k << 1) + (keys[k] < x ? 1 : 0);
+        }
+        return k;
+    }
+
+    /**
+     * @param k 走到底后的位置
+     * @return 第一个 >= x 的元素在 keys 中的位置，不存在时返回0
+     */
+    private static int successor(int k) {
+        return k >>> (Integer.numberOfTrailingZeros(~k) + 1);
+    }
+
+    /**
+     * @param k 走到底后的位置
+     * @return 最后一个 < x 的元素在 keys 中的位置，不存在时返回0
+     */
+    private static int predecessor(int k) {
+        return k >>> (Integer.numberOfTrailingZeros(k) + 1);
+    }
+
+    public boolean contains(int x) {
+        int k = successor(descend(x));
+        return k != 0 && keys[k] == x;
+    }
+
+    /**
+     * 小于 x 的元素个数
+     *
+     * @param x 数据
+     * @return 排名(从0开始)
+     */
+    public int rank(int x) {
+        int k = successor(descend(x));
+        return k == 0 ? size : ranks[k];
+    }
+
+    /**
+     * @param x 数据
+     * @return 大于等于 x 的最小元素，不存在时返回 null
+     */
+    public Integer ceiling(int x) {
+        int k = successor(descend(x));
+        return k == 0 ? null : keys[k];
+    }
+
+    /**
+     * @param x 数据
+     * @return 小于等于 x 的最大元素，不存在时返回 null
+     */
+    public Integer floor(int x) {
+        int path = descend(x);
+        int k = successor(path);
+        if (k != 0 && keys[k] == x) {
+            return x;
+        }
+        k = predecessor(path);
+        return k == 0 ? null : keys[k];
+    }
+}
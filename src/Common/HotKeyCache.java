@@ -0,0 +1,149 @@
+package Common;
+
+import java.util.Arrays;
+
+/**
+ * 固定大小的 int 键缓存，记录最近确认存在的键
+ * <p>
+ * 1.开放寻址(线性探测)，键直接保存在 int 数组中，没有节点对象和装箱
+ * 2.容量用满后按 CLOCK 淘汰：每个槽位有一个访问位，命中时置位；指针循环扫描，遇到置位的清零并跳过，
+ * 遇到没有置位的就淘汰，近似 LRU 但命中时只写一个字节
+ * 3.删除时向后移动同一探测链上的键填补空位(backward shift)，不使用墓碑，探测链不会越来越长
+ */
+final class HotKeyCache {
+
+    private static final byte EMPTY = 0;
+
+    private static final byte CACHED = 1;
+
+    private static final byte REFERENCED = 2;
+
+    private final int[] keys;
+
+    private final byte[] states;
+
+    private final int mask;
+
+    /**
+     * 最多保存的键数，为槽位数的 3/4，保证探测链较短
+     */
+    private final int limit;
+
+    private int size;
+
+    /**
+     * CLOCK 指针
+     */
+    private int hand;
+
+    /**
+     * @param capacity 最多缓存的键数
+     */
+    HotKeyCache(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("容量必须大于0: " + capacity);
+        }
+        int slots = Integer.highestOneBit(Math.max(2, capacity * 4 / 3 + 1) - 1) << 1;
+        keys = new int[slots];
+        states = new byte[slots];
+        mask = slots - 1;
+        limit = capacity;
+    }
+
+    private int home(int key) {
+        int h = key * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    private int find(int key) {
+        for (int i = home(key); states[i] != EMPTY; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 查找，命中时设置访问位
+     *
+     * @param key 键
+     * @return 是否命中
+     */
+    boolean contains(int key) {
+        int slot = find(key);
+        if (slot < 0) {
+            return false;
+        }
+        states[slot] = REFERENCED;
+        return true;
+    }
+
+    void put(int key) {
+        if (find(key) >= 0) {
+            return;
+        }
+        if (size == limit) {
+            evict();
+        }
+        int i = home(key);
+        while (states[i] != EMPTY) {
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        states[i] = CACHED;
+        size++;
+    }
+
+    void remove(int key) {
+        int slot = find(key);
+        if (slot >= 0) {
+            delete(slot);
+        }
+    }
+
+    void clear() {
+        Arrays.fill(states, EMPTY);
+        size = 0;
+        hand = 0;
+    }
+
+    /**
+     * CLOCK：转动指针直到找到一个没有访问位的键，最多两圈
+     */
+    private void evict() {
+        while (true) {
+            int slot = hand;
+            hand = (hand + 1) & mask;
+            if (states[slot] == REFERENCED) {
+                states[slot] = CACHED;
+            } else if (states[slot] == CACHED) {
+                delete(slot);
+                return;
+            }
+        }
+    }
+
+    /**
+     * 删除槽位上的键，把后面探测链上能前移的键移到空位上
+     *
+     * @param slot 槽位
+     */
+    private void delete(int slot) {
+        int hole = slot;
+        int i = (slot + 1) & mask;
+        while (states[i] != EMPTY) {
+            int home = home(keys[i]);
+            //  键的起始位置不在 (hole, i] 之间时，说明它探测时经过了空位，可以移过去
+            boolean movable = hole <= i ? (home <= hole || home > i) : (home <= hole && home > i);
+            if (movable) {
+                keys[hole] = keys[i];
+                states[hole] = states[i];
+                hole = i;
+            }
+            i = (i + 1) & mask;
+        }
+        states[hole] = EMPTY;
+        size--;
+    }
+}
@@ -0,0 +1,141 @@
+package Common;
+
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+
+/**
+ * 树查找的加速器，由 BinarySearchTree.accelerate 或 AVL.accelerate 创建，包装在树的外面：
+ * 1.热点缓存 {@link HotKeyCache}：最近确认存在的键直接返回 true，不访问树
+ * 2.计数布隆过滤器 {@link CountingBloomFilter}：过滤器判断不存在的键直接返回 false，不访问树
+ * 3.其余的查询才走树，树中不存在但过滤器判断可能存在的记为一次误判
+ * <p>
+ * 创建之后对树的修改必须通过 insert/remove 进行，否则过滤器和缓存会与树不一致
+ * 插入时过滤器判断一定不存在的键不需要先查树；删除时同理，同时从缓存中移除
+ * 非线程安全
+ */
+public final class LookupAccelerator {
+
+    private final IntPredicate contains;
+
+    private final IntConsumer insert;
+
+    private final IntConsumer remove;
+
+    private final HotKeyCache cache;
+
+    private final CountingBloomFilter filter;
+
+    private long lookups;
+
+    private long cacheHits;
+
+    private long filterRejects;
+
+    private long falsePositives;
+
+    /**
+     * @param contains      树的查找
+     * @param insert        树的插入
+     * @param remove        树的删除
+     * @param existingKeys  树中已有的键
+     * @param cacheCapacity 热点缓存的键数
+     * @param expectedKeys  预计树中最多的键数，用于确定过滤器的大小
+     */
+    public LookupAccelerator(IntPredicate contains, IntConsumer insert, IntConsumer remove, int[] existingKeys,
+                             int cacheCapacity, int expectedKeys) {
+        this.contains = contains;
+        this.insert = insert;
+        this.remove = remove;
+        this.cache = new HotKeyCache(cacheCapacity);
+        this.filter = new CountingBloomFilter(Math.max(expectedKeys, existingKeys.length));
+        for (int key : existingKeys) {
+            filter.add(key);
+        }
+    }
+
+    public boolean contains(int e) {
+        lookups++;
+        if (cache.contains(e)) {
+            cacheHits++;
+            return true;
+        }
+        if (!filter.mightContain(e)) {
+            filterRejects++;
+            return false;
+        }
+        if (contains.test(e)) {
+            cache.put(e);
+            return true;
+        }
+        falsePositives++;
+        return false;
+    }
+
+    /**
+     * 过滤器的计数必须与树中的键一一对应，所以已经存在的键不能重复计入
+     *
+     * @param e 数据
+     */
+    public void insert(int e) {
+        if (filter.mightContain(e) && contains.test(e)) {
+            return;
+        }
+        insert.accept(e);
+        filter.add(e);
+    }
+
+    public void remove(int e) {
+        if (!filter.mightContain(e) || !contains.test(e)) {
+            return;
+        }
+        remove.accept(e);
+        filter.remove(e);
+        cache.remove(e);
+    }
+
+    public long getLookups() {
+        return lookups;
+    }
+
+    /**
+     * @return 缓存命中的比例
+     */
+    public double getHitRate() {
+        return lookups == 0 ? 0 : (double) cacheHits / lookups;
+    }
+
+    /**
+     * @return 缓存没有命中的比例
+     */
+    public double getMissRate() {
+        return lookups == 0 ? 0 : 1 - getHitRate();
+    }
+
+    /**
+     * @return 被过滤器直接拒绝的比例
+     */
+    public double getFilterRejectRate() {
+        return lookups == 0 ? 0 : (double) filterRejects / lookups;
+    }
+
+    /**
+     * @return 过滤器判断可能存在、但树中不存在的查询占所有不存在的查询的比例
+     */
+    public double getFalsePositiveRate() {
+        long negatives = filterRejects + falsePositives;
+        return negatives == 0 ? 0 : (double) falsePositives / negatives;
+    }
+
+    public void resetStatistics() {
+        lookups = 0;
+        cacheHits = 0;
+        filterRejects = 0;
+        falsePositives = 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("lookups=%d, hit=%.4f, miss=%.4f, filterReject=%.4f, falsePositive=%.4f",
+                lookups, getHitRate(), getMissRate(), getFilterRejectRate(), getFalsePositiveRate());
+    }
+}
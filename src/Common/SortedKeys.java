@@ -0,0 +1,98 @@
+package Common;
+
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * AVL 和 BinarySearchTree 的批量构建、批量插入和批量查找共用的有序数组工具
+ */
+public final class SortedKeys {
+
+    private SortedKeys() {
+    }
+
+    /**
+     * 把迭代器中的数据依次读入数组
+     *
+     * @param iterator 迭代器
+     * @return 长度正好等于数据个数的数组
+     */
+    public static int[] toArray(Iterator<Integer> iterator) {
+        int[] keys = new int[16];
+        int count = 0;
+        while (iterator.hasNext()) {
+            if (count == keys.length) {
+                keys = Arrays.copyOf(keys, count << 1);
+            }
+            keys[count++] = iterator.next();
+        }
+        return Arrays.copyOf(keys, count);
+    }
+
+    /**
+     * 返回排好序且没有重复元素的数组，输入已经满足条件时直接返回，否则返回新数组，传入的数组不会被修改
+     *
+     * @param keys 数组
+     * @return 有序且不重复的数组
+     */
+    public static int[] sortedDistinct(int[] keys) {
+        int[] sorted = keys;
+        for (int i = 1; i < keys.length; i++) {
+            if (keys[i - 1] > keys[i]) {
+                sorted = keys.clone();
+                Arrays.parallelSort(sorted);
+                break;
+            }
+        }
+        int distinct = sorted.length == 0 ? 0 : 1;
+        for (int i = 1; i < sorted.length; i++) {
+            if (sorted[i] != sorted[i - 1]) {
+                distinct++;
+            }
+        }
+        if (distinct == sorted.length) {
+            return sorted;
+        }
+        int[] unique = new int[distinct];
+        unique[0] = sorted[0];
+        for (int i = 1, j = 1; i < sorted.length; i++) {
+            if (sorted[i] != sorted[i - 1]) {
+                unique[j++] = sorted[i];
+            }
+        }
+        return unique;
+    }
+
+    /**
+     * 检查批量查找的参数：keys 必须是升序的(可以有重复)，out 的长度不能小于 keys
+     *
+     * @param keys 一批数据
+     * @param out  结果数组
+     */
+    public static void checkBatch(int[] keys, boolean[] out) {
+        if (out.length < keys.length) {
+            throw new IllegalArgumentException("结果数组的长度不能小于 " + keys.length);
+        }
+        for (int i = 1; i < keys.length; i++) {
+            if (keys[i - 1] > keys[i]) {
+                throw new IllegalArgumentException("数组必须是升序的，下标: " + i);
+            }
+        }
+    }
+
+    /**
+     * @return keys[lo..hi] 中第一个 >= x 的下标，不存在时返回 hi + 1
+     */
+    public static int lowerBound(int[] keys, int lo, int hi, int x) {
+        hi++;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (keys[mid] < x) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+}
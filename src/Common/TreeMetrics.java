@@ -0,0 +1,206 @@
+package Common;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 树操作的统计，用于判断延迟升高是因为树退化(比较次数、深度变大)还是旋转过多
+ * <p>
+ * 1.所有计数器都是 LongAdder，多个线程同时记录时各自累加到不同的单元，不会争用同一个缓存行
+ * 2.深度直方图按 1/sampleRate 的概率采样，下标为操作到达的节点深度(根为1)，超过 63 的计入最后一格
+ * 3.通过 {@link BinarySearchTree.BinarySearchTree#setMetrics(TreeMetrics)} 或 {@link AVL.AVL#setMetrics(TreeMetrics)} 开启；
+ * 没有开启时树中只多一次字段判空，路径上的计数只是局部变量的自增
+ */
+public final class TreeMetrics {
+
+    /**
+     * 旋转的类型
+     */
+    public enum Rotation {
+        LL, RR, LR, RL
+    }
+
+    private static final int DEPTHS = 64;
+
+    private final LongAdder operations = new LongAdder();
+
+    private final LongAdder comparisons = new LongAdder();
+
+    private final LongAdder nodesVisited = new LongAdder();
+
+    private final LongAdder[] rotations = new LongAdder[Rotation.values().length];
+
+    private final LongAdder[] depths = new LongAdder[DEPTHS];
+
+    private final int sampleMask;
+
+    public TreeMetrics() {
+        this(64);
+    }
+
+    /**
+     * @param sampleRate 深度直方图的采样间隔，平均每 sampleRate 次操作采样一次，必须是 2 的幂
+     */
+    public TreeMetrics(int sampleRate) {
+        if (sampleRate <= 0 || Integer.bitCount(sampleRate) != 1) {
+            throw new IllegalArgumentException("采样间隔必须是2的幂: " + sampleRate);
+        }
+        this.sampleMask = sampleRate - 1;
+        for (int i = 0; i < rotations.length; i++) {
+            rotations[i] = new LongAdder();
+        }
+        for (int i = 0; i < DEPTHS; i++) {
+            depths[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * 记录一次操作
+     *
+     * @param comparisons  比较的次数
+     * @param nodesVisited 访问的节点数
+     * @param depth        操作到达的节点深度
+     */
+    public void record(int comparisons, int nodesVisited, int depth) {
+        operations.increment();
+        this.comparisons.add(comparisons);
+        this.nodesVisited.add(nodesVisited);
+        if ((ThreadLocalRandom.current().nextInt() & sampleMask) == 0) {
+            depths[Math.min(depth, DEPTHS - 1)].increment();
+        }
+    }
+
+    /**
+     * 记录一次旋转
+     *
+     * @param rotation 旋转的类型
+     */
+    public void record(Rotation rotation) {
+        rotations[rotation.ordinal()].increment();
+    }
+
+    /**
+     * 清零，和正在进行的记录同时发生时可能丢失少量计数
+     */
+    public void reset() {
+        operations.reset();
+        comparisons.reset();
+        nodesVisited.reset();
+        for (LongAdder rotation : rotations) {
+            rotation.reset();
+        }
+        for (LongAdder depth : depths) {
+            depth.reset();
+        }
+    }
+
+    /**
+     * 当前计数的快照，各个计数器分别读取，记录仍在进行时彼此之间不保证一致
+     *
+     * @return 快照
+     */
+    public Snapshot snapshot() {
+        long[] rotationCounts = new long[rotations.length];
+        for (int i = 0; i < rotations.length; i++) {
+            rotationCounts[i] = rotations[i].sum();
+        }
+        long[] histogram = new long[DEPTHS];
+        for (int i = 0; i < DEPTHS; i++) {
+            histogram[i] = depths[i].sum();
+        }
+        return new Snapshot(operations.sum(), comparisons.sum(), nodesVisited.sum(), rotationCounts, histogram);
+    }
+
+    /**
+     * 不可变的统计快照
+     */
+    public static final class Snapshot {
+
+        private final long operations;
+
+        private final long comparisons;
+
+        private final long nodesVisited;
+
+        private final long[] rotations;
+
+        private final long[] depthHistogram;
+
+        private Snapshot(long operations, long comparisons, long nodesVisited, long[] rotations,
+                         long[] depthHistogram) {
+            this.operations = operations;
+            this.comparisons = comparisons;
+            this.nodesVisited = nodesVisited;
+            this.rotations = rotations;
+            this.depthHistogram = depthHistogram;
+        }
+
+        public long getOperations() {
+            return operations;
+        }
+
+        public long getComparisons() {
+            return comparisons;
+        }
+
+        public long getNodesVisited() {
+            return nodesVisited;
+        }
+
+        /**
+         * @return 平均每次操作的比较次数
+         */
+        public double getComparisonsPerOperation() {
+            return operations == 0 ? 0 : (double) comparisons / operations;
+        }
+
+        public long getRotations(Rotation rotation) {
+            return rotations[rotation.ordinal()];
+        }
+
+        /**
+         * @return 采样得到的深度直方图，下标为深度
+         */
+        public long[] getDepthHistogram() {
+            return depthHistogram.clone();
+        }
+
+        /**
+         * @param quantile 分位数，0 到 1 之间
+         * @return 采样的深度中位于该分位的深度，没有采样时返回0
+         */
+        public int getDepthQuantile(double quantile) {
+            long total = 0;
+            for (long count : depthHistogram) {
+                total += count;
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long target = (long) Math.ceil(quantile * total);
+            long seen = 0;
+            for (int depth = 0; depth < depthHistogram.length; depth++) {
+                seen += depthHistogram[depth];
+                if (seen >= Math.max(target, 1)) {
+                    return depth;
+                }
+            }
+            return depthHistogram.length - 1;
+        }
+
+        @Override
+        public String toString() {
+            int last = depthHistogram.length - 1;
+            while (last > 0 && depthHistogram[last] == 0) {
+                last--;
+            }
+            return String.format("operations=%d, comparisons/op=%.2f, nodesVisited=%d, LL=%d, RR=%d, LR=%d, RL=%d, "
+                            + "depth p50=%d p99=%d, histogram=%s",
+                    operations, getComparisonsPerOperation(), nodesVisited,
+                    rotations[0], rotations[1], rotations[2], rotations[3],
+                    getDepthQuantile(0.5), getDepthQuantile(0.99),
+                    Arrays.toString(Arrays.copyOf(depthHistogram, last + 1)));
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package Tree;
+
+import java.util.Arrays;
+
+/**
+ * 支持 rank/select 的只读位向量
+ * <p>
+ * 1.rank1(p)：[0, p) 中 1 的个数。每 512 位(8 个 long)保存一次之前 1 的累计个数，
+ * 查询时取出累计值，再对最多 8 个 long 做 bitCount，O(1)
+ * 2.select1(k)/select0(k)：第 k 个(从0开始) 1/0 的位置。每 512 个 1(0) 采样一次它所在的块，
+ * 在两个采样之间二分查找块，再在块内逐个 long 查找，通常只需要看很少的块
+ * <p>
+ * 额外空间约为位数的 6% 加上采样
+ */
+final class BitVector {
+
+    private static final int BLOCK_BITS = 512;
+
+    private static final int WORDS_PER_BLOCK = BLOCK_BITS / 64;
+
+    private static final int SAMPLE = 512;
+
+    private final long[] words;
+
+    private final long length;
+
+    /**
+     * 每个块之前 1 的个数
+     */
+    private final long[] blockRanks;
+
+    private final int[] select1Samples;
+
+    private final int[] select0Samples;
+
+    private final long ones;
+
+    BitVector(long[] words, long length) {
+        this.words = words;
+        this.length = length;
+        int blocks = (int) ((length + BLOCK_BITS - 1) / BLOCK_BITS) + 1;
+        blockRanks = new long[blocks];
+        long rank = 0;
+        for (int b = 0; b < blocks; b++) {
+            blockRanks[b] = rank;
+            for (int w = b * WORDS_PER_BLOCK; w < (b + 1) * WORDS_PER_BLOCK && w < words.length; w++) {
+                rank += Long.bitCount(words[w]);
+            }
+        }
+        ones = rank;
+        select1Samples = samples(true, ones);
+        select0Samples = samples(false, length - ones);
+    }
+
+    /**
+     * 每 SAMPLE 个 1(或0) 记录一次所在的块
+     */
+    private int[] samples(boolean one, long count) {
+        int[] samples = new int[(int) (count / SAMPLE) + 2];
+        int block = 0;
+        for (int i = 0; i < samples.length - 1; i++) {
+            long k = (long) i * SAMPLE;
+            while (block + 1 < blockRanks.length && rankBefore(block + 1, one) <= k) {
+                block++;
+            }
+            samples[i] = block;
+        }
+        samples[samples.length - 1] = blockRanks.length - 1;
+        return samples;
+    }
+
+    private long rankBefore(int block, boolean one) {
+        return one ? blockRanks[block] : (long) block * BLOCK_BITS - blockRanks[block];
+    }
+
+    long length() {
+        return length;
+    }
+
+    boolean get(long p) {
+        return (words[(int) (p >>> 6)] & (1L << p)) != 0;
+    }
+
+    long rank1(long p) {
+        int block = (int) (p / BLOCK_BITS);
+        long rank = blockRanks[block];
+        int word = (int) (p >>> 6);
+        for (int w = block * WORDS_PER_BLOCK; w < word; w++) {
+            rank += Long.bitCount(words[w]);
+        }
+        if ((p & 63) != 0) {
+            rank += Long.bitCount(words[word] & ((1L << p) - 1));
+        }
+        return rank;
+    }
+
+    long rank0(long p) {
+        return p - rank1(p);
+    }
+
+    long select1(long k) {
+        return select(k, true);
+    }
+
+    long select0(long k) {
+        return select(k, false);
+    }
+
+    private long select(long k, boolean one) {
+        int[] samples = one ? select1Samples : select0Samples;
+        int sample = (int) (k / SAMPLE);
+        //  在两个采样之间二分查找最后一个 rankBefore <= k 的块
+        int lo = samples[sample];
+        int hi = samples[Math.min(sample + 1, samples.length - 1)];
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (rankBefore(mid, one) <= k) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        long remaining = k - rankBefore(lo, one);
+        for (int w = lo * WORDS_PER_BLOCK; w < words.length; w++) {
+            long bits = one ? words[w] : ~words[w];
+            int count = Long.bitCount(bits);
+            if (remaining < count) {
+                //  清除低位的 remaining 个 1
+                for (long i = 0; i < remaining; i++) {
+                    bits &= bits - 1;
+                }
+                long position = ((long) w << 6) + Long.numberOfTrailingZeros(bits);
+                if (position >= length) {
+                    break;
+                }
+                return position;
+            }
+            remaining -= count;
+        }
+        throw new IndexOutOfBoundsException("select(" + k + ") 越界");
+    }
+
+    /**
+     * 逐位追加构建位向量
+     */
+    static final class Builder {
+
+        private long[] words = new long[16];
+
+        private long length;
+
+        void append(boolean bit) {
+            int word = (int) (length >>> 6);
+            if (word == words.length) {
+                words = Arrays.copyOf(words, words.length << 1);
+            }
+            if (bit) {
+                words[word] |= 1L << length;
+            }
+            length++;
+        }
+
+        BitVector build() {
+            return new BitVector(Arrays.copyOf(words, (int) ((length + 63) >>> 6)), length);
+        }
+    }
+}
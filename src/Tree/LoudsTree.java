@@ -0,0 +1,127 @@
+package Tree;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * 树的简洁表示 LOUDS (Level-Order Unary Degree Sequence)
+ * <p>
+ * 按层序(BFS)给节点编号，根节点为0。先写入超级根的 "10"，再按编号顺序对每个节点写入 孩子个数 个 1 和一个 0，
+ * 例如根有3个孩子，第一个孩子有1个孩子，其他是树叶：10 1110 10 0 0 0
+ * 第 i 个 1(从0开始) 代表编号为 i 的节点，编号为 i 的节点的孩子序列从第 i 个 0 之后开始，所以：
+ * 1.childCount(i) = select0(i + 1) - select0(i) - 1
+ * 2.firstChild(i) = rank1(select0(i) + 1)，前提是孩子个数大于0
+ * 3.nextSibling(i)：代表 i 的 1 后面还是 1，那么下一个兄弟就是 i + 1
+ * 4.parent(i) = rank0(select1(i)) - 1
+ * <p>
+ * 结构只占约 2 位/节点加上 rank/select 的索引，节点数据按编号保存在单独的数组中
+ */
+public final class LoudsTree {
+
+    /**
+     * 没有对应节点
+     */
+    public static final int NONE = -1;
+
+    private final BitVector bits;
+
+    private final Object[] elements;
+
+    private LoudsTree(BitVector bits, Object[] elements) {
+        this.bits = bits;
+        this.elements = elements;
+    }
+
+    /**
+     * 按层序遍历由 firstChild/nex 链接的树，生成 LOUDS 位序列
+     *
+     * @param root 根节点
+     * @return 简洁表示的树
+     */
+    public static LoudsTree build(Node root) {
+        BitVector.Builder builder = new BitVector.Builder();
+        if (null == root) {
+            return new LoudsTree(builder.build(), new Object[0]);
+        }
+        Object[] elements = new Object[16];
+        int size = 0;
+        //  超级根
+        builder.append(true);
+        builder.append(false);
+        ArrayDeque<Node> queue = new ArrayDeque<>();
+        queue.add(root);
+        while (!queue.isEmpty()) {
+            Node node = queue.remove();
+            if (size == elements.length) {
+                elements = Arrays.copyOf(elements, size << 1);
+            }
+            elements[size++] = node.getElement();
+            for (Node child = node.getFirstChild(); null != child; child = child.getNextSibling()) {
+                builder.append(true);
+                queue.add(child);
+            }
+            builder.append(false);
+        }
+        return new LoudsTree(builder.build(), Arrays.copyOf(elements, size));
+    }
+
+    public int size() {
+        return elements.length;
+    }
+
+    public boolean isEmpty() {
+        return elements.length == 0;
+    }
+
+    /**
+     * @return 根节点编号，空树返回 NONE
+     */
+    public int root() {
+        return isEmpty() ? NONE : 0;
+    }
+
+    public Object element(int node) {
+        return elements[node];
+    }
+
+    public int childCount(int node) {
+        check(node);
+        return (int) (bits.select0(node + 1) - bits.select0(node) - 1);
+    }
+
+    public int firstChild(int node) {
+        check(node);
+        long position = bits.select0(node) + 1;
+        if (!bits.get(position)) {
+            return NONE;
+        }
+        return (int) bits.rank1(position);
+    }
+
+    public int nextSibling(int node) {
+        check(node);
+        long position = bits.select1(node) + 1;
+        if (position >= bits.length() || !bits.get(position)) {
+            return NONE;
+        }
+        return node + 1;
+    }
+
+    public int parent(int node) {
+        check(node);
+        return (int) (bits.rank0(bits.select1(node)) - 1);
+    }
+
+    /**
+     * @return 结构部分(位序列，不含索引和节点数据)占用的位数
+     */
+    public long bitLength() {
+        return bits.length();
+    }
+
+    private void check(int node) {
+        if (node < 0 || node >= elements.length) {
+            throw new IndexOutOfBoundsException("节点编号越界: " + node + ", size: " + elements.length);
+        }
+    }
+}
@@ -7,6 +7,8 @@ package Tree;
  * 树有n个节点以及n-1条边
  * 没有子节点的节点称为树叶
  *
+ * 每个节点只保存第一个孩子(firstChild)和下一个兄弟(nex)，孩子之间通过兄弟链表连接
+ *
  * @author asus
  */
 public class Node {
@@ -17,4 +19,46 @@ public class Node {
 
     private Node nex;
 
+    public Node(Object element) {
+        this.element = element;
+    }
+
+    public Object getElement() {
+        return element;
+    }
+
+    public Node getFirstChild() {
+        return firstChild;
+    }
+
+    public Node getNextSibling() {
+        return nex;
+    }
+
+    public void setFirstChild(Node firstChild) {
+        this.firstChild = firstChild;
+    }
+
+    public void setNextSibling(Node nex) {
+        this.nex = nex;
+    }
+
+    /**
+     * 添加一个孩子到孩子链表的末尾
+     *
+     * @param child 孩子节点
+     * @return 孩子节点
+     */
+    public Node addChild(Node child) {
+        if (null == firstChild) {
+            firstChild = child;
+            return child;
+        }
+        Node last = firstChild;
+        while (null != last.nex) {
+            last = last.nex;
+        }
+        last.nex = child;
+        return child;
+    }
 }
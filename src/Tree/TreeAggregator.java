@@ -0,0 +1,309 @@
+package Tree;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BiFunction;
+import java.util.function.BinaryOperator;
+
+/**
+ * 子树聚合：对每个节点计算 result(node) = finisher(node, children[0] ⊕ children[1] ⊕ ...)，
+ * 其中 ⊕ 是用户提供的满足结合律的 combiner，identity 是它的单位元，孩子的结果按兄弟链表的顺序合并
+ * <p>
+ * 例如子树大小：identity = 0，combiner = 加法，finisher = (node, c) -> c + 1；
+ * 树的高度：identity = 0，combiner = max，finisher = (node, c) -> c + 1
+ * <p>
+ * 并行计算使用 ForkJoinPool：每个节点沿兄弟链表为前面的孩子创建子任务并 fork，最后一个孩子在当前任务中继续向下，
+ * 返回时再按兄弟顺序 join 合并，所以只有 fork 出去的子任务才会在 join 时嵌套调用栈。以下情况不再拆分，
+ * 改为在当前线程中用显式栈顺序计算整棵子树：
+ * 1.当前线程队列中多余的任务数超过阈值，说明其他线程已经有足够的任务可以窃取
+ * 2.fork 的嵌套层数达到 {@link #MAX_FORK_DEPTH}
+ * 所以调用栈的深度与树的深度无关，很深的树也不会栈溢出
+ * <p>
+ * 开启缓存后每个节点的结果都会被记录，之后的查询直接返回；树被修改后需要调用 {@link #invalidate()}
+ *
+ * @param <R> 结果类型，不能为 null
+ */
+public final class TreeAggregator<R> {
+
+    private static final int DEFAULT_THRESHOLD = 3;
+
+    /**
+     * fork 的最大嵌套层数，超过后在当前线程中顺序计算
+     */
+    private static final int MAX_FORK_DEPTH = 32;
+
+    private final R identity;
+
+    private final BinaryOperator<R> combiner;
+
+    private final BiFunction<Node, R, R> finisher;
+
+    private final ForkJoinPool pool;
+
+    /**
+     * 多余任务数的阈值，超过后不再拆分
+     */
+    private final int threshold;
+
+    /**
+     * 节点的结果缓存，为 null 时表示不缓存。Node 没有重写 equals/hashCode，所以按对象本身区分
+     */
+    private final Map<Node, R> cache;
+
+    public TreeAggregator(R identity, BinaryOperator<R> combiner, BiFunction<Node, R, R> finisher, boolean cached) {
+        this(identity, combiner, finisher, cached, ForkJoinPool.commonPool(), DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * @param identity  combiner 的单位元，没有孩子时 finisher 收到的值
+     * @param combiner  合并两个孩子的结果，需要满足结合律
+     * @param finisher  由节点和合并后的孩子结果计算节点的结果
+     * @param cached    是否缓存每个节点的结果
+     * @param pool      并行计算使用的线程池
+     * @param threshold 多余任务数的阈值，超过后不再拆分
+     */
+    public TreeAggregator(R identity, BinaryOperator<R> combiner, BiFunction<Node, R, R> finisher, boolean cached,
+                          ForkJoinPool pool, int threshold) {
+        this.identity = identity;
+        this.combiner = combiner;
+        this.finisher = finisher;
+        this.cache = cached ? new ConcurrentHashMap<>() : null;
+        this.pool = pool;
+        this.threshold = threshold;
+    }
+
+    /**
+     * 子树的节点数
+     */
+    public static TreeAggregator<Integer> subtreeSize(boolean cached) {
+        return new TreeAggregator<>(0, Integer::sum, (node, children) -> children + 1, cached);
+    }
+
+    /**
+     * 子树的高度，树叶的高度为1
+     */
+    public static TreeAggregator<Integer> height(boolean cached) {
+        return new TreeAggregator<>(0, Math::max, (node, children) -> children + 1, cached);
+    }
+
+    /**
+     * 并行计算以 root 为根的子树的结果
+     *
+     * @param root 根节点
+     * @return 结果
+     */
+    public R aggregate(Node root) {
+        if (null == root) {
+            return identity;
+        }
+        R cached = cached(root);
+        if (null != cached) {
+            return cached;
+        }
+        return pool.invoke(new AggregateTask(root, 0));
+    }
+
+    /**
+     * 在当前线程中顺序计算
+     *
+     * @param root 根节点
+     * @return 结果
+     */
+    public R aggregateSequential(Node root) {
+        if (null == root) {
+            return identity;
+        }
+        return sequential(root);
+    }
+
+    /**
+     * 清空缓存，树被修改后调用
+     */
+    public void invalidate() {
+        if (null != cache) {
+            cache.clear();
+        }
+    }
+
+    private R cached(Node node) {
+        return null == cache ? null : cache.get(node);
+    }
+
+    private R finish(Node node, R children) {
+        R result = finisher.apply(node, children);
+        if (null != cache) {
+            cache.put(node, result);
+        }
+        return result;
+    }
+
+    /**
+     * 用显式栈后序计算子树，栈帧记录节点、已合并的孩子结果和下一个要处理的孩子
+     */
+    private R sequential(Node root) {
+        R cached = cached(root);
+        if (null != cached) {
+            return cached;
+        }
+        ArrayDeque<Frame<R>> stack = new ArrayDeque<>();
+        stack.push(new Frame<>(root, identity));
+        while (true) {
+            Frame<R> frame = stack.peek();
+            Node child = frame.next;
+            if (null != child) {
+                frame.next = child.getNextSibling();
+                R childResult = cached(child);
+                if (null != childResult) {
+                    frame.accumulated = combiner.apply(frame.accumulated, childResult);
+                } else {
+                    stack.push(new Frame<>(child, identity));
+                }
+                continue;
+            }
+            stack.pop();
+            R result = finish(frame.node, frame.accumulated);
+            Frame<R> parent = stack.peek();
+            if (null == parent) {
+                return result;
+            }
+            parent.accumulated = combiner.apply(parent.accumulated, result);
+        }
+    }
+
+    private static final class Frame<R> {
+
+        private final Node node;
+
+        private R accumulated;
+
+        private Node next;
+
+        private Frame(Node node, R accumulated) {
+            this.node = node;
+            this.accumulated = accumulated;
+            this.next = node.getFirstChild();
+        }
+    }
+
+    private final class AggregateTask extends RecursiveTask<R> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Node node;
+
+        /**
+         * 从 aggregate 开始经过的 fork 次数
+         */
+        private final int depth;
+
+        private AggregateTask(Node node, int depth) {
+            this.node = node;
+            this.depth = depth;
+        }
+
+        @Override
+        protected R compute() {
+            if (depth >= MAX_FORK_DEPTH) {
+                return sequential(node);
+            }
+            //  每个节点只 fork 前面的孩子，最后一个没有缓存的孩子在当前任务中继续向下处理，
+            //  所以沿着同一条路径向下不会嵌套任务，路径上的节点保存在显式栈中
+            ArrayDeque<Pending> path = new ArrayDeque<>();
+            Node current = node;
+            R result;
+            while (true) {
+                if (getSurplusQueuedTaskCount() > threshold) {
+                    result = sequential(current);
+                    break;
+                }
+                Pending pending = fork(current);
+                if (null == pending.inline) {
+                    result = pending.combine(null);
+                    break;
+                }
+                path.push(pending);
+                current = pending.inline;
+            }
+            while (!path.isEmpty()) {
+                result = path.pop().combine(result);
+            }
+            return result;
+        }
+
+        /**
+         * 沿兄弟链表 fork 除最后一个以外所有没有缓存的孩子
+         *
+         * @param node 节点
+         * @return 等待合并的节点
+         */
+        private Pending fork(Node node) {
+            Pending pending = new Pending(node);
+            for (Node child = node.getFirstChild(); null != child; child = child.getNextSibling()) {
+                if (null != cached(child)) {
+                    continue;
+                }
+                if (null != pending.inline) {
+                    AggregateTask task = new AggregateTask(pending.inline, depth + 1);
+                    task.fork();
+                    pending.tasks.add(task);
+                }
+                pending.inline = child;
+            }
+            return pending;
+        }
+    }
+
+    /**
+     * 孩子已经 fork 出去、等待合并结果的节点
+     */
+    private final class Pending {
+
+        private final Node node;
+
+        /**
+         * 按兄弟顺序排列的已 fork 的孩子
+         */
+        private final List<AggregateTask> tasks = new ArrayList<>();
+
+        /**
+         * 在当前任务中继续处理的孩子，没有时为 null
+         */
+        private Node inline;
+
+        private Pending(Node node) {
+            this.node = node;
+        }
+
+        /**
+         * 按兄弟顺序合并孩子的结果，combiner 只需要满足结合律，不要求交换律
+         *
+         * @param inlineResult inline 孩子的结果
+         * @return 节点的结果
+         */
+        private R combine(R inlineResult) {
+            R accumulated = identity;
+            int next = 0;
+            for (Node child = node.getFirstChild(); null != child; child = child.getNextSibling()) {
+                R value;
+                if (child == inline) {
+                    value = inlineResult;
+                } else if (next < tasks.size() && tasks.get(next).node == child) {
+                    value = tasks.get(next++).join();
+                } else {
+                    //  fork 时已经缓存的孩子，缓存期间被清空时重新计算
+                    value = cached(child);
+                    if (null == value) {
+                        value = sequential(child);
+                    }
+                }
+                accumulated = combiner.apply(accumulated, value);
+            }
+            return finish(node, accumulated);
+        }
+    }
+}
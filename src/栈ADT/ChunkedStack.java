@@ -0,0 +1,221 @@
+package 栈ADT;
+
+/**
+ * IntStack、LongStack、DoubleStack 共用的分块存储，A 是块中的数组类型(int[]、long[]、double[])
+ * <p>
+ * 数据保存在固定大小的块(chunk)中，块之间用链表连接：
+ * 1.栈增长时只需要新增一个块，不会像 ArrayList 一样复制整个数组
+ * 2.栈顶块空了之后放入备用链表，再次增长时优先复用，在块的边界上反复 push/pop 不会不停地分配
+ * 3.高水位线(high-water mark)：记录上次收缩以来同时使用的最多块数，使用的块数降到高水位线的一半时收缩：
+ * 只保留一个备用块，其余的都释放，高水位线降为当前使用的块数。
+ * 所以一次峰值之后栈变小时内存会还回去，而在峰值附近来回波动时不会反复分配，备用块最多约为峰值的一半
+ * <p>
+ * 子类只负责按自己的类型创建和读写数组：入栈时写入 top.values[{@link #reserve()}]，
+ * 出栈时读出 top.values[{@link #last()}] 再调用 {@link #drop()}
+ *
+ * @param <A> 数组类型
+ */
+abstract class ChunkedStack<A> {
+
+    static final int DEFAULT_CHUNK_SIZE = 1024;
+
+    private final int chunkSize;
+
+    /**
+     * 栈顶所在的块
+     */
+    Chunk<A> top;
+
+    /**
+     * 栈顶块中的元素个数，栈不为空时总是大于0
+     */
+    private int index;
+
+    private int size;
+
+    /**
+     * 正在使用的块数
+     */
+    private int chunks;
+
+    /**
+     * 上次收缩以来同时使用的最多块数
+     */
+    private int highWater;
+
+    /**
+     * 备用的空块，用 previous 连接
+     */
+    private Chunk<A> spare;
+
+    /**
+     * @param chunkSize 每个块能保存的元素个数
+     */
+    ChunkedStack(int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("块大小必须大于0: " + chunkSize);
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * @param length 长度
+     * @return 新的数组
+     */
+    abstract A newArray(int length);
+
+    /**
+     * 把 src[end - 1]、src[end - 2]... 共 count 个元素依次写入 dest[offset] 开始的位置
+     */
+    abstract void copyReversed(A src, int end, A dest, int offset, int count);
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * 为入栈的元素预留一个位置，栈顶块满了时换上一个新块
+     *
+     * @return 元素在栈顶块中的下标
+     */
+    final int reserve() {
+        if (null == top || index == chunkSize) {
+            addChunk();
+        }
+        size++;
+        return index++;
+    }
+
+    /**
+     * @return 栈顶元素在栈顶块中的下标
+     */
+    final int last() {
+        if (size < 1) {
+            throw new NullPointerException("栈中没有数据");
+        }
+        return index - 1;
+    }
+
+    /**
+     * 删除栈顶元素，调用前先通过 {@link #last()} 读出它
+     */
+    final void drop() {
+        size--;
+        if (--index == 0) {
+            releaseChunk();
+        }
+    }
+
+    /**
+     * 批量入栈，values[offset] 最先入栈，按块整段复制
+     *
+     * @param values 数据
+     * @param capacity values 的长度
+     * @param offset 起始下标
+     * @param length 个数
+     */
+    final void pushAll(A values, int capacity, int offset, int length) {
+        if (offset < 0 || length < 0 || offset + length > capacity) {
+            throw new IndexOutOfBoundsException("offset: " + offset + ", length: " + length);
+        }
+        while (length > 0) {
+            if (null == top || index == chunkSize) {
+                addChunk();
+            }
+            int n = Math.min(chunkSize - index, length);
+            System.arraycopy(values, offset, top.values, index, n);
+            index += n;
+            size += n;
+            offset += n;
+            length -= n;
+        }
+    }
+
+    /**
+     * 批量出栈，栈顶元素写入 dest[offset]，依次向后
+     *
+     * @param dest     目标数组
+     * @param capacity dest 的长度
+     * @param offset   起始下标
+     * @param n        出栈的个数
+     */
+    final void popN(A dest, int capacity, int offset, int n) {
+        if (offset < 0 || n < 0 || offset + n > capacity) {
+            throw new IndexOutOfBoundsException("offset: " + offset + ", n: " + n);
+        }
+        if (n > size) {
+            throw new NullPointerException("栈中没有足够的数据");
+        }
+        size -= n;
+        while (n > 0) {
+            int count = Math.min(index, n);
+            copyReversed(top.values, index, dest, offset, count);
+            index -= count;
+            offset += count;
+            n -= count;
+            if (index == 0) {
+                releaseChunk();
+            }
+        }
+    }
+
+    /**
+     * 清空栈并释放所有块
+     */
+    public void clear() {
+        top = null;
+        spare = null;
+        index = 0;
+        size = 0;
+        chunks = 0;
+        highWater = 0;
+    }
+
+    private void addChunk() {
+        Chunk<A> chunk = spare;
+        if (null == chunk) {
+            chunk = new Chunk<>(newArray(chunkSize));
+        } else {
+            spare = chunk.previous;
+        }
+        chunk.previous = top;
+        top = chunk;
+        index = 0;
+        if (++chunks > highWater) {
+            highWater = chunks;
+        }
+    }
+
+    /**
+     * 栈顶块空了，退回上一个块(上一个块一定是满的)，空块放入备用链表；
+     * 使用的块数降到高水位线的一半时，只保留这个空块作为备用，并降低高水位线
+     */
+    private void releaseChunk() {
+        Chunk<A> empty = top;
+        top = empty.previous;
+        index = null == top ? 0 : chunkSize;
+        chunks--;
+        if (chunks <= highWater >> 1) {
+            empty.previous = null;
+            highWater = chunks;
+        } else {
+            empty.previous = spare;
+        }
+        spare = empty;
+    }
+
+    static final class Chunk<A> {
+
+        final A values;
+
+        private Chunk<A> previous;
+
+        private Chunk(A values) {
+            this.values = values;
+        }
+    }
+}
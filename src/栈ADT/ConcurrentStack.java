@@ -0,0 +1,210 @@
+package 栈ADT;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 无锁并发栈
+ * <p>
+ * 1.Treiber 栈：栈顶是一个 AtomicReference，push/pop 通过 CAS 替换栈顶，节点一旦入栈就不再修改
+ * 2.消除回退(elimination backoff)：CAS 栈顶失败说明有竞争，此时不立即重试，而是到消除数组中随机选一个位置：
+ * push 把节点放进去等待一小段时间，pop 从中取走节点。一对 push/pop 在数组中相遇就互相抵消，
+ * 相当于 push 之后立即 pop，不需要经过栈顶，竞争越激烈抵消的机会越多
+ * <p>
+ * LIFO
+ *
+ * @param <T> 元素类型
+ */
+public class ConcurrentStack<T> {
+
+    /**
+     * 消除数组的大小，线程越多需要的位置越多
+     */
+    private static final int ELIMINATION_SIZE = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+    /**
+     * push 在消除数组中等待的自旋次数
+     */
+    private static final int SPINS = 64;
+
+    private final AtomicReference<Node<T>> top = new AtomicReference<>();
+
+    private final AtomicReferenceArray<Node<T>> elimination = new AtomicReferenceArray<>(ELIMINATION_SIZE);
+
+    public boolean isEmpty() {
+        return null == top.get();
+    }
+
+    /**
+     * 入栈（插入新元素到末尾）
+     */
+    public void push(T t) {
+        Node<T> node = new Node<>(t);
+        while (true) {
+            Node<T> current = top.get();
+            node.next = current;
+            if (top.compareAndSet(current, node)) {
+                return;
+            }
+            if (eliminatePush(node)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 出栈（删除最后插入的元素）
+     */
+    public T pop() {
+        Node<T> node = popNode();
+        if (null == node) {
+            throw new NullPointerException("栈中没有数据");
+        }
+        return node.item;
+    }
+
+    /**
+     * 出栈，栈为空时返回 null 而不抛出异常
+     */
+    public T tryPop() {
+        Node<T> node = popNode();
+        return null == node ? null : node.item;
+    }
+
+    private Node<T> popNode() {
+        while (true) {
+            Node<T> current = top.get();
+            if (null == current) {
+                return null;
+            }
+            if (top.compareAndSet(current, current.next)) {
+                return current;
+            }
+            Node<T> node = eliminatePop();
+            if (null != node) {
+                return node;
+            }
+        }
+    }
+
+    /**
+     * 把节点放到消除数组中等待 pop 取走
+     *
+     * @param node 节点
+     * @return 是否被 pop 取走
+     */
+    private boolean eliminatePush(Node<T> node) {
+        int slot = ThreadLocalRandom.current().nextInt(ELIMINATION_SIZE);
+        if (!elimination.compareAndSet(slot, null, node)) {
+            return false;
+        }
+        for (int i = 0; i < SPINS; i++) {
+            if (elimination.get(slot) != node) {
+                return true;
+            }
+            Thread.onSpinWait();
+        }
+        //  撤回失败说明在最后一刻被取走了
+        return !elimination.compareAndSet(slot, node, null);
+    }
+
+    /**
+     * 从消除数组中取走一个正在等待的 push
+     *
+     * @return 取到的节点，没有时返回 null
+     */
+    private Node<T> eliminatePop() {
+        int slot = ThreadLocalRandom.current().nextInt(ELIMINATION_SIZE);
+        Node<T> node = elimination.get(slot);
+        if (null != node && elimination.compareAndSet(slot, node, null)) {
+            return node;
+        }
+        return null;
+    }
+
+    private static final class Node<T> {
+
+        private final T item;
+
+        private Node<T> next;
+
+        private Node(T item) {
+            this.item = item;
+        }
+    }
+
+    /**
+     * 压力测试：每个线程 push 各自不同的数据，并随机 pop，记录 pop 到的数据，结束后取出栈中剩下的数据。
+     * 每个数据必须恰好被取出一次：既没有丢失也没有重复，取出的总和等于 push 的总和。
+     * 线程数从 1 增加到 8(或第一个参数指定的线程数)，输出吞吐量
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int operations = 1 << 20;
+        for (int threads = 1; threads <= maxThreads; threads <<= 1) {
+            ConcurrentStack<Integer> stack = new ConcurrentStack<>();
+            CountDownLatch start = new CountDownLatch(1);
+            Thread[] workers = new Thread[threads];
+            IntStack[] popped = new IntStack[threads];
+            for (int t = 0; t < threads; t++) {
+                int id = t;
+                popped[t] = new IntStack();
+                workers[t] = new Thread(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < operations; i++) {
+                        stack.push(id * operations + i);
+                        //  7/8 的 push 之后紧跟一次 pop，栈保持较浅，push 和 pop 持续竞争栈顶
+                        if (random.nextInt(8) < 7) {
+                            Integer value = stack.tryPop();
+                            if (null != value) {
+                                popped[id].push(value);
+                            }
+                        }
+                    }
+                });
+                workers[t].start();
+            }
+            long begin = System.nanoTime();
+            start.countDown();
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            long elapsed = System.nanoTime() - begin;
+
+            int total = threads * operations;
+            boolean[] seen = new boolean[total];
+            int duplicated = 0;
+            long sum = 0;
+            //  栈中剩下的数据并入第一个线程的记录
+            for (Integer value = stack.tryPop(); null != value; value = stack.tryPop()) {
+                popped[0].push(value);
+            }
+            for (IntStack values : popped) {
+                while (!values.isEmpty()) {
+                    int value = values.pop();
+                    sum += value;
+                    if (seen[value]) {
+                        duplicated++;
+                    }
+                    seen[value] = true;
+                }
+            }
+            int lost = 0;
+            for (boolean found : seen) {
+                if (!found) {
+                    lost++;
+                }
+            }
+            long expected = (long) total * (total - 1) / 2;
+            System.out.printf("threads=%d ops/ms=%d lost=%d duplicated=%d sum ok=%b%n",
+                    threads, (long) total * 1_000_000L / elapsed, lost, duplicated, sum == expected);
+        }
+    }
+}
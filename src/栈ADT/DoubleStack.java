@@ -0,0 +1,84 @@
+package 栈ADT;
+
+/**
+ * double 栈，不装箱，分块存储和收缩策略见 {@link ChunkedStack}
+ * <p>
+ * LIFO
+ */
+public class DoubleStack extends ChunkedStack<double[]> {
+
+    public DoubleStack() {
+        this(DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * @param chunkSize 每个块能保存的元素个数
+     */
+    public DoubleStack(int chunkSize) {
+        super(chunkSize);
+    }
+
+    /**
+     * 入栈（插入新元素到末尾）
+     */
+    public void push(double value) {
+        int slot = reserve();
+        top.values[slot] = value;
+    }
+
+    /**
+     * 出栈（删除最后插入的元素）
+     */
+    public double pop() {
+        int slot = last();
+        double value = top.values[slot];
+        drop();
+        return value;
+    }
+
+    /**
+     * 查看栈顶元素，不出栈
+     */
+    public double peek() {
+        int slot = last();
+        return top.values[slot];
+    }
+
+    public void pushAll(double[] values) {
+        pushAll(values, 0, values.length);
+    }
+
+    /**
+     * 批量入栈，values[offset] 最先入栈
+     *
+     * @param values 数据
+     * @param offset 起始下标
+     * @param length 个数
+     */
+    public void pushAll(double[] values, int offset, int length) {
+        pushAll(values, values.length, offset, length);
+    }
+
+    /**
+     * 批量出栈，栈顶元素写入 dest[offset]，依次向后
+     *
+     * @param dest   目标数组
+     * @param offset 起始下标
+     * @param n      出栈的个数
+     */
+    public void popN(double[] dest, int offset, int n) {
+        popN(dest, dest.length, offset, n);
+    }
+
+    @Override
+    double[] newArray(int length) {
+        return new double[length];
+    }
+
+    @Override
+    void copyReversed(double[] src, int end, double[] dest, int offset, int count) {
+        for (int i = 0; i < count; i++) {
+            dest[offset + i] = src[--end];
+        }
+    }
+}
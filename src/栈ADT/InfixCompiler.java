@@ -0,0 +1,211 @@
+package 栈ADT;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * 中缀表达式编译器(调度场算法 shunting-yard)
+ * <p>
+ * 逐个字符读取中缀表达式，一次扫描完成，后缀形式的指令直接写入 {@link PostfixExpression.Builder}，不产生中间的字符串：
+ * 1.遇到数字，连续读取多位数字，读完后作为操作数输出
+ * 2.遇到运算符，先把栈顶优先级大于等于它的运算符依次弹出并输出(左结合)，再将它入栈
+ * 3.遇到左括号，直接入栈；遇到右括号，一直弹出并输出，直到遇到左括号
+ * 4.读取结束，把栈中剩余的运算符依次弹出并输出
+ * <p>
+ * 支持 + - * / 和括号。在需要操作数的位置出现的 - 是一元取负，+ 是一元正号(忽略)，
+ * 取负的优先级高于乘除，并且是前缀运算符，入栈时不弹出其他运算符。
+ * 紧跟在取负后面的数字直接编译成负数，所以 -9223372036854775808 可以表示 Long.MIN_VALUE；
+ * 其他位置(包括二元减号之后)的 9223372036854775808 仍然超出范围
+ */
+public final class InfixCompiler {
+
+    /**
+     * 运算符栈中的左括号
+     */
+    private static final int LEFT_PARENTHESIS = -1;
+
+    private final PostfixExpression.Builder builder = new PostfixExpression.Builder();
+
+    /**
+     * 运算符栈，保存 PostfixExpression 中的指令
+     */
+    private final IntStack operators = new IntStack(64);
+
+    /**
+     * 当前位置是否需要一个操作数(表达式开头、左括号和运算符之后)
+     */
+    private boolean expectOperand = true;
+
+    /**
+     * 是否正在读取数字
+     */
+    private boolean inNumber;
+
+    /**
+     * 正在读取的数字的相反数，按负数累加，这样 Long.MIN_VALUE 也不会溢出
+     */
+    private long number;
+
+    /**
+     * 已读取的字符数，用于错误信息
+     */
+    private long position;
+
+    private InfixCompiler() {
+    }
+
+    /**
+     * 编译中缀表达式，如 "(1 + 2) * -3"
+     *
+     * @param text 中缀表达式
+     * @return 编译后的表达式
+     */
+    public static PostfixExpression compile(CharSequence text) {
+        InfixCompiler compiler = new InfixCompiler();
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            compiler.accept(text.charAt(i));
+        }
+        return compiler.finish();
+    }
+
+    /**
+     * 从 Reader 中读取并编译中缀表达式，不需要先把整个表达式读入内存
+     *
+     * @param reader 中缀表达式
+     * @return 编译后的表达式
+     * @throws IOException 读取失败
+     */
+    public static PostfixExpression compile(Reader reader) throws IOException {
+        InfixCompiler compiler = new InfixCompiler();
+        char[] buffer = new char[256];
+        int n;
+        while ((n = reader.read(buffer)) != -1) {
+            for (int i = 0; i < n; i++) {
+                compiler.accept(buffer[i]);
+            }
+        }
+        return compiler.finish();
+    }
+
+    private void accept(char c) {
+        if (c >= '0' && c <= '9') {
+            if (!inNumber) {
+                if (!expectOperand) {
+                    throw error("缺少运算符");
+                }
+                inNumber = true;
+                number = 0;
+            }
+            try {
+                number = Math.subtractExact(Math.multiplyExact(number, 10), c - '0');
+            } catch (ArithmeticException e) {
+                throw error("数字超出范围");
+            }
+            position++;
+            return;
+        }
+        finishNumber();
+        switch (c) {
+            case '(':
+                if (!expectOperand) {
+                    throw error("缺少运算符");
+                }
+                operators.push(LEFT_PARENTHESIS);
+                break;
+            case ')':
+                if (expectOperand) {
+                    throw error("缺少操作数");
+                }
+                while (!operators.isEmpty() && operators.peek() != LEFT_PARENTHESIS) {
+                    builder.operator(operators.pop());
+                }
+                if (operators.isEmpty()) {
+                    throw error("括号不匹配");
+                }
+                operators.pop();
+                break;
+            case '+':
+            case '-':
+            case '*':
+            case '/':
+                operator(PostfixExpression.opcode(c));
+                break;
+            default:
+                if (!Character.isWhitespace(c)) {
+                    throw error("不支持的字符 '" + c + "'");
+                }
+                break;
+        }
+        position++;
+    }
+
+    private void operator(int opcode) {
+        if (expectOperand) {
+            if (opcode == PostfixExpression.SUB) {
+                operators.push(PostfixExpression.NEG);
+            } else if (opcode != PostfixExpression.ADD) {
+                throw error("缺少操作数");
+            }
+            return;
+        }
+        int precedence = precedence(opcode);
+        while (!operators.isEmpty() && operators.peek() != LEFT_PARENTHESIS
+                && precedence(operators.peek()) >= precedence) {
+            builder.operator(operators.pop());
+        }
+        operators.push(opcode);
+        expectOperand = true;
+    }
+
+    /**
+     * 输出读完的数字，前面紧跟着取负时把取负合并到数字中
+     */
+    private void finishNumber() {
+        if (!inNumber) {
+            return;
+        }
+        if (!operators.isEmpty() && operators.peek() == PostfixExpression.NEG) {
+            operators.pop();
+            builder.operand(number);
+        } else if (number == Long.MIN_VALUE) {
+            throw error("数字超出范围");
+        } else {
+            builder.operand(-number);
+        }
+        inNumber = false;
+        expectOperand = false;
+    }
+
+    private PostfixExpression finish() {
+        finishNumber();
+        if (expectOperand) {
+            throw error("表达式不完整");
+        }
+        while (!operators.isEmpty()) {
+            int opcode = operators.pop();
+            if (opcode == LEFT_PARENTHESIS) {
+                throw error("括号不匹配");
+            }
+            builder.operator(opcode);
+        }
+        return builder.build();
+    }
+
+    private static int precedence(int opcode) {
+        switch (opcode) {
+            case PostfixExpression.ADD:
+            case PostfixExpression.SUB:
+                return 1;
+            case PostfixExpression.MUL:
+            case PostfixExpression.DIV:
+                return 2;
+            default:
+                return 3;
+        }
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException("中缀表达式不合法: " + message + "，位置 " + position);
+    }
+}
@@ -0,0 +1,84 @@
+package 栈ADT;
+
+/**
+ * long 栈，不装箱，分块存储和收缩策略见 {@link ChunkedStack}
+ * <p>
+ * LIFO
+ */
+public class LongStack extends ChunkedStack<long[]> {
+
+    public LongStack() {
+        this(DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * @param chunkSize 每个块能保存的元素个数
+     */
+    public LongStack(int chunkSize) {
+        super(chunkSize);
+    }
+
+    /**
+     * 入栈（插入新元素到末尾）
+     */
+    public void push(long value) {
+        int slot = reserve();
+        top.values[slot] = value;
+    }
+
+    /**
+     * 出栈（删除最后插入的元素）
+     */
+    public long pop() {
+        int slot = last();
+        long value = top.values[slot];
+        drop();
+        return value;
+    }
+
+    /**
+     * 查看栈顶元素，不出栈
+     */
+    public long peek() {
+        int slot = last();
+        return top.values[slot];
+    }
+
+    public void pushAll(long[] values) {
+        pushAll(values, 0, values.length);
+    }
+
+    /**
+     * 批量入栈，values[offset] 最先入栈
+     *
+     * @param values 数据
+     * @param offset 起始下标
+     * @param length 个数
+     */
+    public void pushAll(long[] values, int offset, int length) {
+        pushAll(values, values.length, offset, length);
+    }
+
+    /**
+     * 批量出栈，栈顶元素写入 dest[offset]，依次向后
+     *
+     * @param dest   目标数组
+     * @param offset 起始下标
+     * @param n      出栈的个数
+     */
+    public void popN(long[] dest, int offset, int n) {
+        popN(dest, dest.length, offset, n);
+    }
+
+    @Override
+    long[] newArray(int length) {
+        return new long[length];
+    }
+
+    @Override
+    void copyReversed(long[] src, int end, long[] dest, int offset, int count) {
+        for (int i = 0; i < count; i++) {
+            dest[offset + i] = src[--end];
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package 栈ADT;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 编译后的后缀表达式
+ * <p>
+ * 表达式只解析一次，编译成两个平行的数组：opcodes 保存指令，operands 保存操作数指令对应的数值。
+ * 计算时在 long 数组模拟的栈上执行指令，不需要解析字符串，也不会产生任何对象：
+ * 1.遇到操作数，入栈
+ * 2.遇到二元运算符，弹出右操作数和左操作数，计算后把结果入栈；遇到取负(NEG)，直接对栈顶取负
+ * 3.最后栈中只剩一个数，就是表达式的值
+ * <p>
+ * 编译时已经计算出栈需要的最大深度并检查了表达式是否合法，所以计算时不需要再检查栈是否越界。
+ * 加、减、乘、取负溢出以及除数为0时抛出 ArithmeticException
+ */
+public final class PostfixExpression {
+
+    public static final int OPERAND = 0;
+    public static final int ADD = 1;
+    public static final int SUB = 2;
+    public static final int MUL = 3;
+    public static final int DIV = 4;
+    /**
+     * 一元取负，只由中缀表达式的编译产生
+     */
+    public static final int NEG = 5;
+
+    private final int[] opcodes;
+
+    private final long[] operands;
+
+    /**
+     * 计算时栈的最大深度
+     */
+    private final int maxDepth;
+
+    /**
+     * 默认的计算栈，evaluate() 复用它，所以同一个实例不能被多个线程同时用 evaluate() 计算
+     */
+    private final long[] stack;
+
+    private PostfixExpression(int[] opcodes, long[] operands, int maxDepth) {
+        this.opcodes = opcodes;
+        this.operands = operands;
+        this.maxDepth = maxDepth;
+        this.stack = new long[maxDepth];
+    }
+
+    /**
+     * 编译以 List 表示的后缀表达式，如 ["6", "5", "2", "3", "+", "8", "*", "+", "3", "+", "*"]
+     *
+     * @param tokens 后缀表达式
+     * @return 编译后的表达式
+     */
+    public static PostfixExpression compile(List<String> tokens) {
+        Builder builder = new Builder();
+        for (String token : tokens) {
+            int opcode = token.length() == 1 ? opcode(token.charAt(0)) : OPERAND;
+            if (opcode == OPERAND) {
+                builder.operand(Long.parseLong(token));
+            } else {
+                builder.operator(opcode);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * 编译以空白分隔的后缀表达式，如 "6 5 2 3 + 8 * + 3 + *"
+     *
+     * @param text 后缀表达式
+     * @return 编译后的表达式
+     */
+    public static PostfixExpression compile(CharSequence text) {
+        Builder builder = new Builder();
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+                continue;
+            }
+            int end = i + 1;
+            while (end < length && !Character.isWhitespace(text.charAt(end))) {
+                end++;
+            }
+            int opcode = end - i == 1 ? opcode(c) : OPERAND;
+            if (opcode == OPERAND) {
+                builder.operand(parseLong(text, i, end));
+            } else {
+                builder.operator(opcode);
+            }
+            i = end;
+        }
+        return builder.build();
+    }
+
+    /**
+     * 运算符对应的指令
+     *
+     * @param c 字符
+     * @return 指令，不是运算符时返回 OPERAND
+     */
+    public static int opcode(char c) {
+        switch (c) {
+            case '+':
+                return ADD;
+            case '-':
+                return SUB;
+            case '*':
+                return MUL;
+            case '/':
+                return DIV;
+            default:
+                return OPERAND;
+        }
+    }
+
+    private static long parseLong(CharSequence text, int start, int end) {
+        boolean negative = text.charAt(start) == '-';
+        int i = negative || text.charAt(start) == '+' ? start + 1 : start;
+        if (i == end) {
+            throw new NumberFormatException("不合法的数字: " + text.subSequence(start, end));
+        }
+        //  按负数累加，这样 Long.MIN_VALUE 也不会溢出
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = text.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("不合法的数字: " + text.subSequence(start, end));
+            }
+            if (value < (Long.MIN_VALUE + digit) / 10) {
+                throw new NumberFormatException("数字超出范围: " + text.subSequence(start, end));
+            }
+            value = value * 10 - digit;
+        }
+        if (!negative) {
+            if (value == Long.MIN_VALUE) {
+                throw new NumberFormatException("数字超出范围: " + text.subSequence(start, end));
+            }
+            value = -value;
+        }
+        return value;
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * 使用实例自带的栈计算，不分配内存，非线程安全
+     *
+     * @return 表达式的值
+     */
+    public long evaluate() {
+        return evaluate(stack);
+    }
+
+    /**
+     * 使用调用方提供的栈计算，多个线程各自传入自己的栈即可并发计算
+     *
+     * @param stack 计算栈，长度不能小于 {@link #getMaxDepth()}
+     * @return 表达式的值
+     */
+    public long evaluate(long[] stack) {
+        if (stack.length < maxDepth) {
+            throw new IllegalArgumentException("栈的长度不能小于 " + maxDepth);
+        }
+        int top = 0;
+        for (int i = 0; i < opcodes.length; i++) {
+            int opcode = opcodes[i];
+            if (opcode == OPERAND) {
+                stack[top++] = operands[i];
+                continue;
+            }
+            if (opcode == NEG) {
+                if (stack[top - 1] == Long.MIN_VALUE) {
+                    throw overflow();
+                }
+                stack[top - 1] = -stack[top - 1];
+                continue;
+            }
+            //  先弹出的是右操作数
+            long right = stack[--top];
+            long left = stack[top - 1];
+            stack[top - 1] = apply(opcode, left, right);
+        }
+        return stack[0];
+    }
+
+    /**
+     * 执行一次运算
+     *
+     * @param opcode 指令
+     * @param left   左操作数
+     * @param right  右操作数
+     * @return 结果
+     */
+    public static long apply(int opcode, long left, long right) {
+        if (opcode == DIV) {
+            if (right == 0) {
+                throw new ArithmeticException("除数不能为0");
+            }
+            if (left == Long.MIN_VALUE && right == -1) {
+                throw overflow();
+            }
+            return left / right;
+        }
+        //  Math 的 xxxExact 溢出时的异常信息是英文的，换成统一的中文信息
+        try {
+            switch (opcode) {
+                case ADD:
+                    return Math.addExact(left, right);
+                case SUB:
+                    return Math.subtractExact(left, right);
+                default:
+                    return Math.multiplyExact(left, right);
+            }
+        } catch (ArithmeticException e) {
+            throw overflow();
+        }
+    }
+
+    private static ArithmeticException overflow() {
+        return new ArithmeticException("结果超出 long 的范围");
+    }
+
+    /**
+     * 逐条追加指令来构建表达式，追加时同时检查栈的深度
+     */
+    public static final class Builder {
+
+        private int[] opcodes = new int[16];
+
+        private long[] operands = new long[16];
+
+        private int size;
+
+        private int depth;
+
+        private int maxDepth;
+
+        public Builder operand(long value) {
+            append(OPERAND, value);
+            depth++;
+            maxDepth = Math.max(maxDepth, depth);
+            return this;
+        }
+
+        public Builder operator(int opcode) {
+            if (opcode < ADD || opcode > NEG) {
+                throw new IllegalArgumentException("未知的运算符: " + opcode);
+            }
+            if (opcode == NEG) {
+                if (depth < 1) {
+                    throw new IllegalArgumentException("后缀表达式不合法: 运算符缺少操作数");
+                }
+                append(opcode, 0);
+                return this;
+            }
+            if (depth < 2) {
+                throw new IllegalArgumentException("后缀表达式不合法: 运算符缺少操作数");
+            }
+            append(opcode, 0);
+            depth--;
+            return this;
+        }
+
+        private void append(int opcode, long value) {
+            if (size == opcodes.length) {
+                opcodes = Arrays.copyOf(opcodes, size << 1);
+                operands = Arrays.copyOf(operands, size << 1);
+            }
+            opcodes[size] = opcode;
+            operands[size] = value;
+            size++;
+        }
+
+        public PostfixExpression build() {
+            if (depth != 1) {
+                throw new IllegalArgumentException("后缀表达式不合法: 计算结束后栈中剩余 " + depth + " 个数");
+            }
+            return new PostfixExpression(Arrays.copyOf(opcodes, size), Arrays.copyOf(operands, size), maxDepth);
+        }
+    }
+}
@@ -23,6 +23,14 @@ public class Stack<T> {
         list.add(t);
     }
 
+    public int size() {
+        return list.size();
+    }
+
+    public boolean isEmpty() {
+        return list.isEmpty();
+    }
+
     /**
      * 出栈（删除最后插入的元素）
      */
@@ -56,16 +64,17 @@ public class Stack<T> {
             for (String element :
                     list) {
                 if (SYMBOL.contains(element)) {
+                    //  先出栈的是右操作数
                     Integer num1 = Integer.parseInt(stack.pop());
                     Integer num2 = Integer.parseInt(stack.pop());
                     int result;
 
                     if ("+".equals(element)) {
-                        result = num1 + num2;
+                        result = num2 + num1;
                     } else if ("-".equals(element)) {
-                        result = num1 - num2;
+                        result = num2 - num1;
                     } else if ("/".equals(element)) {
-                        result = num1 / num2;
+                        result = num2 / num1;
                     } else {
                         result = num1 * num2;
                     }
@@ -78,34 +87,38 @@ public class Stack<T> {
             return stack;
         }
 
+        /**
+         * 后缀表达式计算
+         * 表达式只解析一次，编译为 {@link PostfixExpression} 后在 long 栈上计算，溢出和除数为0时抛出 ArithmeticException
+         * 同一个表达式需要多次计算时，应当保留 {@link PostfixExpression#compile(List)} 的结果重复调用 evaluate
+         *
+         * @param list 数据集合
+         * @return 表达式的值
+         */
+        public static long evalPostfixExpression(List<String> list) {
+            return PostfixExpression.compile(list).evaluate();
+        }
+
         /**
          * 中缀表达式转后缀表达式
+         * 使用调度场算法一次扫描完成，结果直接是编译好的后缀表达式，见 {@link InfixCompiler}
          *
+         * @param text 中缀表达式
          * @return 后缀表达式
          */
-        /*public static String middleToLast(char[] arr) {
+        public static PostfixExpression middleToLast(CharSequence text) {
+            return InfixCompiler.compile(text);
+        }
 
-            boolean firstSymbol = true;
-            Stack<String> stack = new Stack<>();
-            StringBuilder result = new StringBuilder();
-            for (char c :
-                    arr) {
-                if (SYMBOL.contains(c)) {
-                    if ("+".equals(c) && firstSymbol) {
-                        firstSymbol = false;
-                    } else if ("+".equals(c)) {
-                        Iterator<String> it = stack.list.iterator();
-                        while (it.hasNext()) {
-                            it.next();
-                        }
-                    } else {
-                    }
-                    stack.push(c + "");
-                }
-            } else{
-                result.append(c);
-            }
-        }*/
+        /**
+         * 中缀表达式计算
+         *
+         * @param text 中缀表达式
+         * @return 表达式的值
+         */
+        public static long calcInfixExpression(CharSequence text) {
+            return InfixCompiler.compile(text).evaluate();
+        }
     }
 
     public static void main(String[] args) {
@@ -123,6 +136,8 @@ public class Stack<T> {
         list.add("*");
 
         Stack<String> stack = StackUtil.calcPostfixExpression(list);
-        System.out.println(stack);
+        System.out.println(stack.pop());
+
+        System.out.println(StackUtil.calcInfixExpression("6 * (5 + (2 + 3) * 8 + 3)"));
     }
 }